@@ -0,0 +1,167 @@
+package sudoku;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Headless balances for any number of accounts, safe to drive from several threads at once.
+// Accounts share a fixed set of striped locks; a transfer takes its two stripes in index order so
+// two opposite transfers cannot deadlock. Balances live in an AtomicLongArray, so reading one
+// never takes a lock. Amounts are whole cents and no operation lets a balance go negative.
+public class AccountEngine {
+    public static final int DEFAULT_STRIPES = 64;
+
+    private final AtomicLongArray balances;
+    private final ReentrantLock[] stripes;
+
+    public AccountEngine(int accounts) {
+        this(accounts, DEFAULT_STRIPES);
+    }
+
+    public AccountEngine(int accounts, int stripeCount) {
+        if (accounts <= 0 || stripeCount <= 0) {
+            throw new IllegalArgumentException("Need at least one account and one stripe");
+        }
+        balances = new AtomicLongArray(accounts);
+        stripes = new ReentrantLock[Math.min(stripeCount, accounts)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public int getAccountCount() {
+        return balances.length();
+    }
+
+    // Lock-free; may be mid-way between two operations on other accounts, never torn
+    public long getBalance(int account) {
+        return balances.get(account);
+    }
+
+    public void setBalance(int account, long cents) {
+        requireNonNegative(cents);
+        ReentrantLock lock = stripeOf(account);
+        lock.lock();
+        try {
+            balances.set(account, cents);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void deposit(int account, long cents) {
+        requireNonNegative(cents);
+        ReentrantLock lock = stripeOf(account);
+        lock.lock();
+        try {
+            balances.set(account, Math.addExact(balances.get(account), cents));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Returns false, changing nothing, if the account holds less than cents
+    public boolean withdraw(int account, long cents) {
+        requireNonNegative(cents);
+        ReentrantLock lock = stripeOf(account);
+        lock.lock();
+        try {
+            long balance = balances.get(account);
+            if (balance < cents) {
+                return false;
+            }
+            balances.set(account, balance - cents);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Moves cents under both accounts' stripes, so other writers and getTotal() see both balances
+    // before or both after. getBalance() takes no lock and can read one side already moved and the
+    // other not yet. Returns false, changing nothing, if the source holds less than cents.
+    public boolean transfer(int from, int to, long cents) {
+        requireNonNegative(cents);
+        if (from == to) {
+            return balances.get(from) >= cents;
+        }
+        int first = stripeIndex(Math.min(from, to));
+        int second = stripeIndex(Math.max(from, to));
+        // Always lock the lower stripe first; accounts on the same stripe need only one lock
+        int low = Math.min(first, second);
+        int high = Math.max(first, second);
+        stripes[low].lock();
+        if (high != low) {
+            stripes[high].lock();
+        }
+        try {
+            long balance = balances.get(from);
+            if (balance < cents) {
+                return false;
+            }
+            long target = Math.addExact(balances.get(to), cents);
+            balances.set(from, balance - cents);
+            balances.set(to, target);
+            return true;
+        } finally {
+            if (high != low) {
+                stripes[high].unlock();
+            }
+            stripes[low].unlock();
+        }
+    }
+
+    // Zeroes every account as one step
+    public void resetAll() {
+        lockAll();
+        try {
+            for (int i = 0; i < balances.length(); i++) {
+                balances.set(i, 0);
+            }
+        } finally {
+            unlockAll();
+        }
+    }
+
+    // Sum of all balances at a single point in time (takes every stripe, so keep it off hot paths)
+    public long getTotal() {
+        lockAll();
+        try {
+            long total = 0;
+            for (int i = 0; i < balances.length(); i++) {
+                total += balances.get(i);
+            }
+            return total;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    private void lockAll() {
+        for (ReentrantLock lock : stripes) {
+            lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    private int stripeIndex(int account) {
+        if (account < 0 || account >= balances.length()) {
+            throw new IndexOutOfBoundsException("No account " + account);
+        }
+        return account % stripes.length;
+    }
+
+    private ReentrantLock stripeOf(int account) {
+        return stripes[stripeIndex(account)];
+    }
+
+    private static void requireNonNegative(long cents) {
+        if (cents < 0) {
+            throw new IllegalArgumentException("Negative amount " + cents);
+        }
+    }
+}
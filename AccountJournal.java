@@ -0,0 +1,592 @@
+package sudoku;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+// Append-only storage for the banking system. Credentials live in a small header snapshot and
+// every operation is one fixed-width binary record in account_ledger.bin, read and appended
+// through memory-mapped windows, so the cost of a write does not depend on how long the history
+// is. Every CHECKPOINT_INTERVAL records the balances are written to a checkpoint together with
+// the number of records they cover, so startup only replays the records after it and older
+// history is read on demand. The header and the checkpoint are SnapshotFiles, so a crash while
+// rewriting either leaves the previous copy.
+//
+// Ledger layout (big-endian):
+//   file header, HEADER_LENGTH bytes: magic "SDKLEDGR", int version, int record length, long created millis
+//   record, RECORD_LENGTH bytes: long timestamp, long cents, byte op, byte account, short 0, int CRC32 of the first 20 bytes
+// The file is extended a window at a time and zero-filled; the first record that fails its
+// checksum marks the end, which also drops a record torn by a crash mid-append.
+public class AccountJournal {
+    public static final int FORMAT_VERSION = 1;
+    public static final int HEADER_LENGTH = 32;
+    public static final int RECORD_LENGTH = 24;
+    public static final int CHECKPOINT_INTERVAL = 256;
+    // Records per mapped append window (384 KB)
+    static final int WINDOW_RECORDS = 1 << 14;
+
+    private static final byte[] MAGIC = "SDKLEDGR".getBytes(StandardCharsets.US_ASCII);
+    private static final int CHECKED_LENGTH = 20;
+    private static final int TEXT_RECORD_LENGTH = 34;
+    private static final Pattern LEGACY_AMOUNT = Pattern.compile("\\$(-?[0-9.E]+)");
+
+    private final File directory;
+    private final File headerFile;
+    private final SnapshotFile header;
+    private final File ledgerFile;
+    private final File textJournalFile;
+    private final File legacyFile;
+    private final SnapshotFile checkpoint;
+    private final File oldCheckpointFile;
+
+    private volatile FileChannel channel;
+    private MappedByteBuffer window;
+    private long windowFirst;
+    private final byte[] scratch = new byte[RECORD_LENGTH];
+    private final CRC32 crc = new CRC32();
+
+    private final long[] balances = new long[2];
+    private volatile long recordCount;
+    private long checkpointRecords;
+    private long openNanos;
+
+    private String password;
+    private int passwordRow;
+    private int passwordCol;
+
+    public AccountJournal(File directory) {
+        this.directory = directory;
+        // Plain header written by earlier versions; read once, then replaced by the snapshot
+        headerFile = new File(directory, "account_header.txt");
+        header = new SnapshotFile(directory, "account_header");
+        ledgerFile = new File(directory, "account_ledger.bin");
+        textJournalFile = new File(directory, "account_journal.txt");
+        legacyFile = new File(directory, "account_data.txt");
+        checkpoint = new SnapshotFile(directory, "account_checkpoint");
+        oldCheckpointFile = new File(directory, "account_checkpoint.txt");
+    }
+
+    // Migrates old data, reads the credentials and restores balances from the latest checkpoint
+    // plus the records appended after it. Cost depends on CHECKPOINT_INTERVAL, not history length.
+    public synchronized void open() throws IOException {
+        long start = System.nanoTime();
+        migrateLegacy();
+        migrateTextJournal();
+        if (hasHeader()) {
+            readHeader();
+            if (!header.exists()) {
+                writeHeader(password, passwordRow, passwordCol);
+            }
+        }
+        // Plain-text checkpoint from earlier versions; costs one full replay
+        oldCheckpointFile.delete();
+
+        closeChannel();
+        channel = FileChannel.open(ledgerFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_LENGTH) {
+            channel.truncate(0);
+            channel.write(fileHeader(), 0);
+            channel.force(true);
+        } else {
+            checkFileHeader(channel);
+        }
+        long capacity = (channel.size() - HEADER_LENGTH) / RECORD_LENGTH;
+
+        balances[Transaction.SAVINGS] = 0;
+        balances[Transaction.SPENDINGS] = 0;
+        checkpointRecords = 0;
+        readCheckpoint(capacity);
+        long index = checkpointRecords;
+        replay:
+        while (index < capacity) {
+            int count = (int) Math.min(4096, capacity - index);
+            ByteBuffer page = map(index, count, FileChannel.MapMode.READ_ONLY);
+            for (int i = 0; i < count; i++) {
+                Transaction t = decode(page, i * RECORD_LENGTH, scratch, crc);
+                if (t == null) {
+                    break replay;
+                }
+                t.apply(balances);
+                index++;
+            }
+        }
+        // Past a damaged record there may be older ones that still check out; clear them, or they
+        // would come back once new appends closed the gap
+        clearTail(index, capacity);
+        recordCount = index;
+        openNanos = System.nanoTime() - start;
+        if (Metrics.ENABLED) {
+            Metrics.journalOpen.record(openNanos);
+            Metrics.setHistorySize(recordCount);
+        }
+    }
+
+    public synchronized long getBalance(int account) {
+        return balances[account];
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    // Time the last open() took, i.e. the storage part of a cold start
+    public double getOpenMillis() {
+        return openNanos / 1e6;
+    }
+
+    public boolean hasHeader() {
+        return header.exists() || headerFile.exists();
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public int getPasswordRow() {
+        return passwordRow;
+    }
+
+    public int getPasswordCol() {
+        return passwordCol;
+    }
+
+    // Recovery time of the header and checkpoint snapshots during the last open()
+    public double getRecoveryMillis() {
+        return header.getLastReadMillis() + checkpoint.getLastReadMillis();
+    }
+
+    public double getLastCheckpointMillis() {
+        return checkpoint.getLastWriteMillis();
+    }
+
+    // Reads only the credentials: no migration, no ledger. Returns false if there is no account yet.
+    public boolean readCredentials() throws IOException {
+        if (hasHeader()) {
+            readHeader();
+            return true;
+        }
+        if (!legacyFile.exists()) {
+            return false;
+        }
+        // Not migrated yet; the old file starts with the same three lines as the header
+        try (BufferedReader reader = new BufferedReader(new FileReader(legacyFile))) {
+            String storedPassword = reader.readLine();
+            int row = Integer.parseInt(reader.readLine());
+            int col = Integer.parseInt(reader.readLine());
+            password = storedPassword;
+            passwordRow = row;
+            passwordCol = col;
+            return true;
+        } catch (NumberFormatException | NullPointerException ex) {
+            throw new IOException("Corrupt account_data.txt", ex);
+        }
+    }
+
+    public void readHeader() throws IOException {
+        byte[] data = header.read();
+        Reader source;
+        if (data != null) {
+            source = new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8);
+        } else if (headerFile.exists()) {
+            source = new FileReader(headerFile);
+        } else {
+            throw new IOException("No intact copy of the account header");
+        }
+        try (BufferedReader reader = new BufferedReader(source)) {
+            String storedPassword = reader.readLine();
+            int row = Integer.parseInt(reader.readLine());
+            int col = Integer.parseInt(reader.readLine());
+            password = storedPassword;
+            passwordRow = row;
+            passwordCol = col;
+        } catch (NumberFormatException | NullPointerException ex) {
+            throw new IOException("Corrupt account header", ex);
+        }
+    }
+
+    // The header is tiny, so it is simply rewritten whenever the credentials change
+    public void writeHeader(String password, int passwordRow, int passwordCol) throws IOException {
+        header.write((password + "\n" + passwordRow + "\n" + passwordCol + "\n").getBytes(StandardCharsets.UTF_8));
+        headerFile.delete();
+        this.password = password;
+        this.passwordRow = passwordRow;
+        this.passwordCol = passwordCol;
+    }
+
+    public void append(Transaction t) throws IOException {
+        appendAll(Collections.singletonList(t));
+    }
+
+    // Writes the records into the mapped window and forces just that range to disk, once per
+    // window touched. If that fails the range is zeroed again, so the caller can retry the whole
+    // batch and a half-written batch is never replayed.
+    public synchronized void appendAll(List<Transaction> transactions) throws IOException {
+        if (channel == null) {
+            throw new IOException("Journal is not open");
+        }
+        long start = recordCount;
+        int total = transactions.size();
+        long startNanos = Metrics.ENABLED ? System.nanoTime() : 0;
+        try {
+            int k = 0;
+            while (k < total) {
+                mapWindow(start + k);
+                int from = (int) (start + k - windowFirst);
+                int to = (int) Math.min(from + (long) (total - k), WINDOW_RECORDS);
+                for (int i = from; i < to; i++, k++) {
+                    encode(transactions.get(k), window, i * RECORD_LENGTH, crc);
+                }
+                long forceNanos = Metrics.ENABLED ? System.nanoTime() : 0;
+                window.force(from * RECORD_LENGTH, (to - from) * RECORD_LENGTH);
+                if (Metrics.ENABLED) {
+                    Metrics.journalFsync.record(System.nanoTime() - forceNanos);
+                }
+            }
+        } catch (IOException | UncheckedIOException ex) {
+            zeroRange(start, start + total);
+            throw ex instanceof IOException ? (IOException) ex : ((UncheckedIOException) ex).getCause();
+        }
+        for (Transaction t : transactions) {
+            t.apply(balances);
+        }
+        recordCount = start + total;
+        if (recordCount - checkpointRecords >= CHECKPOINT_INTERVAL) {
+            try {
+                checkpoint();
+            } catch (IOException ex) {
+                // The record itself is safe; the next append tries the checkpoint again
+            }
+        }
+        if (Metrics.ENABLED) {
+            Metrics.journalWrite.record(System.nanoTime() - startNanos);
+            Metrics.setHistorySize(recordCount);
+        }
+    }
+
+    // Reads up to count records starting at record index from, straight out of a mapped view
+    public List<Transaction> readRecords(long from, int count) throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        long end = Math.min(recordCount, from + count);
+        if (from >= end) {
+            return transactions;
+        }
+        FileChannel file = channel;
+        if (file == null) {
+            throw new IOException("Journal is not open");
+        }
+        int records = (int) (end - from);
+        ByteBuffer page = file.map(FileChannel.MapMode.READ_ONLY, HEADER_LENGTH + from * RECORD_LENGTH, (long) records * RECORD_LENGTH);
+        byte[] buffer = new byte[RECORD_LENGTH];
+        CRC32 check = new CRC32();
+        for (int i = 0; i < records; i++) {
+            Transaction t = decode(page, i * RECORD_LENGTH, buffer, check);
+            if (t == null) {
+                throw new IOException("Corrupt journal record " + (from + i));
+            }
+            transactions.add(t);
+        }
+        return transactions;
+    }
+
+    public synchronized void checkpoint() throws IOException {
+        String text = balances[Transaction.SAVINGS] + "\n" + balances[Transaction.SPENDINGS] + "\n" + recordCount + "\n";
+        checkpoint.write(text.getBytes(StandardCharsets.US_ASCII));
+        checkpointRecords = recordCount;
+    }
+
+    // A missing, damaged or stale checkpoint just means replaying from the start of the ledger
+    private void readCheckpoint(long capacity) throws IOException {
+        byte[] data = checkpoint.read();
+        if (data == null) {
+            return;
+        }
+        long savings;
+        long spendings;
+        long records;
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.US_ASCII))) {
+            savings = Long.parseLong(reader.readLine());
+            spendings = Long.parseLong(reader.readLine());
+            records = Long.parseLong(reader.readLine());
+        } catch (IOException | RuntimeException ex) {
+            return;
+        }
+        // The last record it covers must still be there, or the ledger is not the one it was taken from
+        if (records > capacity || records > 0
+                && decode(map(records - 1, 1, FileChannel.MapMode.READ_ONLY), 0, scratch, crc) == null) {
+            return;
+        }
+        balances[Transaction.SAVINGS] = savings;
+        balances[Transaction.SPENDINGS] = spendings;
+        checkpointRecords = records;
+    }
+
+    // Checkpoints whatever was appended since the last checkpoint so the next start replays nothing
+    public synchronized void close() {
+        if (channel != null && recordCount > checkpointRecords) {
+            try {
+                checkpoint();
+            } catch (IOException ex) {
+                // Startup falls back to replaying from the previous checkpoint
+            }
+        }
+        closeChannel();
+    }
+
+    private void closeChannel() {
+        window = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                // Every append was already forced
+            }
+            channel = null;
+        }
+    }
+
+    private ByteBuffer map(long from, int count, FileChannel.MapMode mode) throws IOException {
+        return channel.map(mode, HEADER_LENGTH + from * RECORD_LENGTH, (long) count * RECORD_LENGTH);
+    }
+
+    // Maps the window holding record index, growing the file with zeros first so a full disk
+    // shows up here as an IOException rather than as a fault while writing to the mapping
+    private void mapWindow(long index) throws IOException {
+        long first = index / WINDOW_RECORDS * WINDOW_RECORDS;
+        if (window != null && first == windowFirst) {
+            return;
+        }
+        long needed = HEADER_LENGTH + (first + WINDOW_RECORDS) * RECORD_LENGTH;
+        long size = channel.size();
+        if (size < needed) {
+            ByteBuffer zeros = ByteBuffer.allocate((int) (needed - size));
+            while (zeros.hasRemaining()) {
+                channel.write(zeros, size + zeros.position());
+            }
+        }
+        window = (MappedByteBuffer) map(first, WINDOW_RECORDS, FileChannel.MapMode.READ_WRITE);
+        windowFirst = first;
+    }
+
+    private void zeroRange(long from, long to) {
+        try {
+            writeZeros(from, to);
+            channel.force(false);
+        } catch (IOException ex) {
+            // recordCount has not moved, so the next batch overwrites the range anyway
+        }
+    }
+
+    private void writeZeros(long from, long to) throws IOException {
+        ByteBuffer zeros = ByteBuffer.allocate((int) ((to - from) * RECORD_LENGTH));
+        while (zeros.hasRemaining()) {
+            channel.write(zeros, HEADER_LENGTH + from * RECORD_LENGTH + zeros.position());
+        }
+    }
+
+    // Zeroes whatever is left in [from, to). The tail is normally the zero fill of the last window,
+    // so pages are only read unless they hold something.
+    private void clearTail(long from, long to) throws IOException {
+        boolean cleared = false;
+        for (long index = from; index < to; ) {
+            int count = (int) Math.min(4096, to - index);
+            ByteBuffer page = map(index, count, FileChannel.MapMode.READ_ONLY);
+            boolean blank = true;
+            // Records are a whole number of longs
+            while (blank && page.hasRemaining()) {
+                blank = page.getLong() == 0;
+            }
+            if (!blank) {
+                writeZeros(index, index + count);
+                cleared = true;
+            }
+            index += count;
+        }
+        if (cleared) {
+            channel.force(false);
+        }
+    }
+
+    private static ByteBuffer fileHeader() {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH);
+        buffer.put(MAGIC).putInt(FORMAT_VERSION).putInt(RECORD_LENGTH).putLong(System.currentTimeMillis());
+        buffer.clear();
+        return buffer;
+    }
+
+    private static void checkFileHeader(FileChannel file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH);
+        file.read(buffer, 0);
+        buffer.flip();
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC) || buffer.getInt() != FORMAT_VERSION || buffer.getInt() != RECORD_LENGTH) {
+            throw new IOException("Not a version " + FORMAT_VERSION + " account ledger");
+        }
+    }
+
+    static void encode(Transaction t, ByteBuffer buffer, int offset, CRC32 crc) {
+        buffer.putLong(offset, t.timestamp);
+        buffer.putLong(offset + 8, t.cents);
+        buffer.put(offset + 16, (byte) t.op);
+        buffer.put(offset + 17, (byte) t.account);
+        buffer.putShort(offset + 18, (short) 0);
+        crc.reset();
+        for (int i = 0; i < CHECKED_LENGTH; i++) {
+            crc.update(buffer.get(offset + i));
+        }
+        buffer.putInt(offset + CHECKED_LENGTH, (int) crc.getValue());
+    }
+
+    // Returns null for a record that is blank, torn or otherwise fails its checksum
+    static Transaction decode(ByteBuffer buffer, int offset, byte[] scratch, CRC32 crc) {
+        buffer.get(offset, scratch, 0, RECORD_LENGTH);
+        char op = (char) scratch[16];
+        if (op == 0) {
+            return null;
+        }
+        crc.reset();
+        crc.update(scratch, 0, CHECKED_LENGTH);
+        if ((int) crc.getValue() != buffer.getInt(offset + CHECKED_LENGTH)) {
+            return null;
+        }
+        return new Transaction(buffer.getLong(offset), op, scratch[17], buffer.getLong(offset + 8));
+    }
+
+    // Writes transactions as a complete new ledger: temp file, fsync, then an atomic rename
+    private void writeLedger(List<Transaction> transactions) throws IOException {
+        File temp = new File(directory, ledgerFile.getName() + ".tmp");
+        try (FileChannel file = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer fileHeader = fileHeader();
+            while (fileHeader.hasRemaining()) {
+                file.write(fileHeader);
+            }
+            ByteBuffer page = ByteBuffer.allocate(4096 * RECORD_LENGTH);
+            CRC32 check = new CRC32();
+            for (int i = 0; i < transactions.size(); i += 4096) {
+                int count = Math.min(4096, transactions.size() - i);
+                for (int j = 0; j < count; j++) {
+                    encode(transactions.get(i + j), page, j * RECORD_LENGTH, check);
+                }
+                page.clear().limit(count * RECORD_LENGTH);
+                while (page.hasRemaining()) {
+                    file.write(page);
+                }
+                page.clear();
+            }
+            file.force(true);
+        }
+        Files.move(temp.toPath(), ledgerFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // Converts the fixed-width text journal of the previous version, once. Record numbering is
+    // unchanged, so an existing checkpoint stays valid.
+    private void migrateTextJournal() throws IOException {
+        if (ledgerFile.exists() || !textJournalFile.exists()) {
+            return;
+        }
+        List<Transaction> transactions = new ArrayList<>();
+        byte[] record = new byte[TEXT_RECORD_LENGTH];
+        try (InputStream in = new BufferedInputStream(new FileInputStream(textJournalFile), 1 << 16)) {
+            // A torn last record is simply dropped
+            while (in.readNBytes(record, 0, TEXT_RECORD_LENGTH) == TEXT_RECORD_LENGTH) {
+                transactions.add(decodeText(record));
+            }
+        }
+        writeLedger(transactions);
+        textJournalFile.renameTo(new File(textJournalFile.getPath() + ".migrated"));
+    }
+
+    // "<13-digit epoch millis> <op> <account> <15-digit cents>\n"
+    private static Transaction decodeText(byte[] record) throws IOException {
+        try {
+            String line = new String(record, StandardCharsets.US_ASCII);
+            long timestamp = Long.parseLong(line.substring(0, 13));
+            char op = line.charAt(14);
+            int account = line.charAt(16) - '0';
+            long cents = Long.parseLong(line.substring(18, 33));
+            return new Transaction(timestamp, op, account, cents);
+        } catch (NumberFormatException ex) {
+            throw new IOException("Corrupt journal record", ex);
+        }
+    }
+
+    // Converts the old single-file account_data.txt into header + ledger, once
+    public void migrateLegacy() throws IOException {
+        if (hasHeader() || !legacyFile.exists()) {
+            return;
+        }
+        List<Transaction> transactions = new ArrayList<>();
+        String storedPassword;
+        int row;
+        int col;
+        try (BufferedReader reader = new BufferedReader(new FileReader(legacyFile))) {
+            storedPassword = reader.readLine();
+            row = Integer.parseInt(reader.readLine());
+            col = Integer.parseInt(reader.readLine());
+            double savings = Double.parseDouble(reader.readLine());
+            double spendings = Double.parseDouble(reader.readLine());
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Transaction t = parseLegacy(line);
+                if (t != null) {
+                    transactions.add(t);
+                }
+            }
+            // Pin the final balances in case the old history did not add up exactly
+            long now = System.currentTimeMillis();
+            transactions.add(new Transaction(now, Transaction.INIT, Transaction.SAVINGS, Transaction.toCents(savings)));
+            transactions.add(new Transaction(now, Transaction.INIT, Transaction.SPENDINGS, Transaction.toCents(spendings)));
+        } catch (NumberFormatException | NullPointerException ex) {
+            throw new IOException("Corrupt account_data.txt", ex);
+        }
+
+        writeLedger(transactions);
+        textJournalFile.delete();
+        checkpoint.delete();
+        writeHeader(storedPassword, row, col);
+        legacyFile.renameTo(new File(legacyFile.getPath() + ".migrated"));
+    }
+
+    // Old history lines were free text written by BankingSystemGUI; map each wording back to a record
+    private static Transaction parseLegacy(String line) {
+        if (line.startsWith("Balances reset")) {
+            return new Transaction(0, Transaction.RESET, Transaction.SAVINGS, 0);
+        }
+        Matcher m = LEGACY_AMOUNT.matcher(line);
+        if (!m.find()) {
+            return null;
+        }
+        long cents;
+        try {
+            cents = Transaction.toCents(Double.parseDouble(m.group(1)));
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+        int account = line.indexOf("Spendings") >= 0 && (line.indexOf("Savings") < 0
+                || line.indexOf("Spendings") < line.indexOf("Savings")) ? Transaction.SPENDINGS : Transaction.SAVINGS;
+        if (line.startsWith("Initialized")) {
+            return new Transaction(0, Transaction.INIT, account, cents);
+        } else if (line.startsWith("Added")) {
+            return new Transaction(0, Transaction.DEPOSIT, account, cents);
+        } else if (line.startsWith("Withdrew")) {
+            return new Transaction(0, Transaction.WITHDRAW, account, cents);
+        } else if (line.startsWith("Transferred")) {
+            return new Transaction(0, Transaction.TRANSFER, account, cents);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,98 @@
+package sudoku;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// The original naive backtracker, kept as a reference implementation for differential testing.
+public class BacktrackingSolver implements SudokuSolver {
+    private volatile long nodes;
+    private long backtracks;
+    private AtomicBoolean stop;
+
+    @Override
+    public boolean solve(Sudoku sudoku) {
+        nodes = 0;
+        backtracks = 0;
+        try {
+            return search(sudoku);
+        } finally {
+            if (Metrics.ENABLED) {
+                Metrics.recordSearch(nodes, backtracks);
+            }
+        }
+    }
+
+    @Override
+    public int countSolutions(Sudoku sudoku, int limit) {
+        nodes = 0;
+        backtracks = 0;
+        try {
+            return count(sudoku, limit);
+        } finally {
+            if (Metrics.ENABLED) {
+                Metrics.recordSearch(nodes, backtracks);
+            }
+        }
+    }
+
+    @Override
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    @Override
+    public void setStopFlag(AtomicBoolean stop) {
+        this.stop = stop;
+    }
+
+    private boolean search(Sudoku sudoku) {
+        checkInterrupted();
+        int size = sudoku.getSize();
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                if (sudoku.getCell(row, col) == 0) {
+                    for (int num = 1; num <= size; num++) {
+                        if (sudoku.isValid(row, col, num)) {
+                            sudoku.setBoardCell(row, col, num);
+                            if (search(sudoku)) return true;
+                            sudoku.setBoardCell(row, col, 0);
+                        }
+                    }
+                    backtracks++;
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private int count(Sudoku sudoku, int limit) {
+        checkInterrupted();
+        int size = sudoku.getSize();
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                if (sudoku.getCell(row, col) == 0) {
+                    int found = 0;
+                    for (int num = 1; num <= size && found < limit; num++) {
+                        if (sudoku.isValid(row, col, num)) {
+                            sudoku.setBoardCell(row, col, num);
+                            found += count(sudoku, limit - found);
+                            sudoku.setBoardCell(row, col, 0);
+                        }
+                    }
+                    if (found == 0) {
+                        backtracks++;
+                    }
+                    return found;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private void checkInterrupted() {
+        if ((++nodes & 1023) == 0 && (Thread.currentThread().isInterrupted() || (stop != null && stop.get()))) {
+            throw new CancellationException("Search interrupted");
+        }
+    }
+}
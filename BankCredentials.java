@@ -0,0 +1,40 @@
+package sudoku;
+
+import java.io.File;
+import java.io.IOException;
+
+// The part of the banking data the Sudoku window needs up front: the password and the cell it is
+// typed into. Loading it touches only the small header file, so it is cheap enough to do at
+// startup while the ledger and the banking window wait until the bank is actually unlocked.
+public class BankCredentials {
+    final String password;
+    final int passwordRow;
+    final int passwordCol;
+
+    public BankCredentials(String password, int passwordRow, int passwordCol) {
+        this.password = password;
+        this.passwordRow = passwordRow;
+        this.passwordCol = passwordCol;
+    }
+
+    // Returns null if no banking account has been set up yet
+    public static BankCredentials load(File directory) throws IOException {
+        AccountJournal journal = new AccountJournal(directory);
+        if (!journal.readCredentials()) {
+            return null;
+        }
+        return new BankCredentials(journal.getPassword(), journal.getPasswordRow(), journal.getPasswordCol());
+    }
+
+    public String getPassword() {
+        return password;
+    }
+
+    public int getPasswordRow() {
+        return passwordRow;
+    }
+
+    public int getPasswordCol() {
+        return passwordCol;
+    }
+}
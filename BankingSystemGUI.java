@@ -4,18 +4,52 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.io.*;
-import java.util.ArrayList;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.time.ZoneId;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
 
 public class BankingSystemGUI extends JFrame {
-    private double savings;
-    private double spendings;
+    // How long closing the window may hold up the EDT while queued records are written
+    private static final long CLOSE_WAIT_MILLIS = 500;
+    // Savings and Spendings balances, in whole cents
+    private final AccountEngine accounts = new AccountEngine(Transaction.ACCOUNT_NAMES.length);
     private String password;
     private final double lowBalanceThreshold = 50.0;
-    private final ArrayList<String> transactionHistory = new ArrayList<>();
-    private JTextArea historyArea;
+    private final TransactionLedger transactionHistory = new TransactionLedger();
+    private TransactionTableModel historyModel;
+    private long storedRecords;
+    private JTable historyTable;
+    private TransactionIndex historyIndex;
+    private boolean importing;
+    private boolean indexing;
+    private boolean filterPending;
+    private boolean statementsPending;
+    private TransactionAnalytics statements;
+    private final StatementTableModel statementModel = new StatementTableModel();
+    private final JLabel statementSummary = new JLabel(" ");
+    private JComboBox<String> filterAccount;
+    private JComboBox<String> filterType;
+    private JTextField filterFrom;
+    private JTextField filterTo;
+    private JTextField filterMin;
+    private JTextField filterMax;
+    private JLabel filterStatus;
+    private static final char[] FILTER_OPS = {TransactionLedger.ANY_OP, Transaction.INIT, Transaction.DEPOSIT,
+            Transaction.WITHDRAW, Transaction.TRANSFER, Transaction.RESET};
     private int passwordRow;
     private int passwordCol;
+    private final AccountJournal journal = new AccountJournal(new File("."));
+    private final JournalWriter journalWriter = new JournalWriter(journal, JournalWriter.DEFAULT_CAPACITY, w -> updateSaveStatus());
+    private final JLabel saveStatusLabel = new JLabel(" ");
+    private Consumer<BankCredentials> credentialsListener;
+    // Builds the window hidden; callers show it
     public BankingSystemGUI() {
         setTitle("Advanced Banking Management System");
         setSize(800, 500);
@@ -63,103 +97,154 @@ public class BankingSystemGUI extends JFrame {
 
         // Reinitialize System Button
         JButton reinitializeButton = new JButton("Reinitialize System");
-        bankingPanel.add(reinitializeButton, BorderLayout.SOUTH);
+        JPanel southPanel = new JPanel(new BorderLayout());
+        saveStatusLabel.setBorder(BorderFactory.createEmptyBorder(2, 10, 2, 10));
+        southPanel.add(saveStatusLabel, BorderLayout.NORTH);
+        southPanel.add(reinitializeButton, BorderLayout.SOUTH);
+        bankingPanel.add(southPanel, BorderLayout.SOUTH);
 
         tabbedPane.addTab("Banking", bankingPanel);
 
         // Transaction History Tab
         JPanel historyPanel = new JPanel(new BorderLayout());
-        historyArea = new JTextArea();
-        historyArea.setEditable(false);
-        JScrollPane historyScrollPane = new JScrollPane(historyArea);
+        // Only the rows on screen are read and rendered, so the tab copes with very long histories
+        historyModel = new TransactionTableModel(journal, storedRecords, transactionHistory);
+        historyTable = new JTable(historyModel);
+        historyTable.setFillsViewportHeight(true);
+        historyTable.getColumnModel().getColumn(0).setPreferredWidth(150);
+        historyTable.getColumnModel().getColumn(1).setPreferredWidth(550);
+        JScrollPane historyScrollPane = new JScrollPane(historyTable);
         historyScrollPane.setBorder(BorderFactory.createTitledBorder("Transaction History"));
         historyPanel.add(historyScrollPane, BorderLayout.CENTER);
+        historyPanel.add(createFilterBar(), BorderLayout.NORTH);
         historyPanel.setBackground(new Color(255, 250, 240));
+        JPanel csvPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        csvPanel.setOpaque(false);
+        JButton importButton = new JButton("Import CSV...");
+        JButton exportButton = new JButton("Export CSV...");
+        csvPanel.add(importButton);
+        csvPanel.add(exportButton);
+        historyPanel.add(csvPanel, BorderLayout.SOUTH);
+        importButton.addActionListener(e -> importStatement(balanceLabel));
+        exportButton.addActionListener(e -> exportStatement());
         tabbedPane.addTab("Transaction History", historyPanel);
 
-        // Update history area now that it's initialized
-        updateTransactionHistory();
+        // Statements Tab, worked out in the background the first time it is opened
+        JPanel statementsPanel = new JPanel(new BorderLayout());
+        JTable statementTable = new JTable(statementModel);
+        statementTable.setFillsViewportHeight(true);
+        JScrollPane statementScrollPane = new JScrollPane(statementTable);
+        statementScrollPane.setBorder(BorderFactory.createTitledBorder("Monthly Statements"));
+        statementsPanel.add(statementScrollPane, BorderLayout.CENTER);
+        statementSummary.setBorder(BorderFactory.createEmptyBorder(4, 10, 4, 10));
+        statementsPanel.add(statementSummary, BorderLayout.NORTH);
+        statementsPanel.setBackground(new Color(245, 245, 255));
+        tabbedPane.addTab("Statements", statementsPanel);
+        tabbedPane.addChangeListener(e -> {
+            if (tabbedPane.getSelectedComponent() == statementsPanel && statements == null && !statementsPending) {
+                computeStatements();
+            }
+        });
 
         add(tabbedPane, BorderLayout.CENTER);
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                // DISPOSE_ON_CLOSE: write out anything still queued before the journal closes
+                closePersistence();
+            }
+        });
 
         // Button Actions
         addButton.addActionListener(e -> processTransaction(amountField, accountType, balanceLabel, true));
         withdrawButton.addActionListener(e -> processTransaction(amountField, accountType, balanceLabel, false));
         transferButton.addActionListener(e -> processTransfer(amountField, accountType, balanceLabel));
         resetButton.addActionListener(e -> resetBalances(balanceLabel));
-        reinitializeButton.addActionListener(e -> reinitializeSystem());
-        
-        setVisible(true);
-
+        reinitializeButton.addActionListener(e -> reinitializeSystem(balanceLabel));
     }
     private void processTransaction(JTextField amountField, JComboBox<String> accountType, JLabel balanceLabel, boolean isAddition) {
+        if (importing) {
+            JOptionPane.showMessageDialog(this, "Wait for the import to finish.");
+            return;
+        }
         try {
-            double amount = Double.parseDouble(amountField.getText());
+            long amount = Transaction.toCents(Double.parseDouble(amountField.getText()));
             if (amount <= 0) {
                 JOptionPane.showMessageDialog(this, "Enter a positive amount.");
                 return;
             }
             String account = accountType.getSelectedItem().toString();
+            int id = Transaction.accountId(account);
+            // Balances change only once the record is queued; outside imports only the EDT changes
+            // them, so the funds and overflow checks still hold when the change is applied
             if (isAddition) {
-                if (account.equals("Savings")) {
-                    savings += amount;
-                } else {
-                    spendings += amount;
+                if (!Transaction.fits(accounts.getBalance(id), amount)) {
+                    JOptionPane.showMessageDialog(this, "Amount too large!");
+                    return;
                 }
-                logTransaction("Added $" + amount + " to " + account);
+                recordTransaction(Transaction.DEPOSIT, account, amount);
+                accounts.deposit(id, amount);
             } else { // Withdrawal
-                if (account.equals("Savings") && savings >= amount) {
-                    savings -= amount;
-                    logTransaction("Withdrew $" + amount + " from Savings");
-                } else if (account.equals("Spendings") && spendings >= amount) {
-                    spendings -= amount;
-                    logTransaction("Withdrew $" + amount + " from Spendings");
-                } else {
+                if (accounts.getBalance(id) < amount) {
                     JOptionPane.showMessageDialog(this, "Insufficient funds for withdrawal!");
                     return;
                 }
+                recordTransaction(Transaction.WITHDRAW, account, amount);
+                accounts.withdraw(id, amount);
             }
-            saveAccountData();
             balanceLabel.setText(getBalanceText());
             amountField.setText("");
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, "Invalid amount!");
+        } catch (IllegalStateException ex) {
+            JOptionPane.showMessageDialog(this, "Could not save: " + ex.getMessage());
         }
     }
 
     private void processTransfer(JTextField amountField, JComboBox<String> accountType, JLabel balanceLabel) {
+        if (importing) {
+            JOptionPane.showMessageDialog(this, "Wait for the import to finish.");
+            return;
+        }
         try {
-            double amount = Double.parseDouble(amountField.getText());
+            long amount = Transaction.toCents(Double.parseDouble(amountField.getText()));
             if (amount <= 0) {
                 JOptionPane.showMessageDialog(this, "Enter a positive amount.");
                 return;
             }
             String source = accountType.getSelectedItem().toString();
-            if (source.equals("Savings") && savings >= amount) {
-                savings -= amount;
-                spendings += amount;
-                logTransaction("Transferred $" + amount + " from Savings to Spendings");
-            } else if (source.equals("Spendings") && spendings >= amount) {
-                spendings -= amount;
-                savings += amount;
-                logTransaction("Transferred $" + amount + " from Spendings to Savings");
-            } else {
+            int from = Transaction.accountId(source);
+            if (accounts.getBalance(from) < amount) {
                 JOptionPane.showMessageDialog(this, "Insufficient funds for transfer!");
                 return;
             }
-            saveAccountData();
+            if (!Transaction.fits(accounts.getBalance(1 - from), amount)) {
+                JOptionPane.showMessageDialog(this, "Amount too large!");
+                return;
+            }
+            recordTransaction(Transaction.TRANSFER, source, amount);
+            accounts.transfer(from, 1 - from, amount);
             balanceLabel.setText(getBalanceText());
             amountField.setText("");
         } catch (NumberFormatException ex) {
             JOptionPane.showMessageDialog(this, "Invalid amount!");
+        } catch (IllegalStateException ex) {
+            JOptionPane.showMessageDialog(this, "Could not save: " + ex.getMessage());
         }
     }
 
     private void resetBalances(JLabel balanceLabel) {
-        savings = 0;
-        spendings = 0;
-        logTransaction("Balances reset to $0");
-        saveAccountData();
+        if (importing) {
+            JOptionPane.showMessageDialog(this, "Wait for the import to finish.");
+            return;
+        }
+        try {
+            recordTransaction(Transaction.RESET, "Savings", 0);
+        } catch (IllegalStateException ex) {
+            JOptionPane.showMessageDialog(this, "Could not save: " + ex.getMessage());
+            return;
+        }
+        accounts.resetAll();
         balanceLabel.setText(getBalanceText());
         JOptionPane.showMessageDialog(this, "Balances reset to $0!");
     }
@@ -204,39 +289,362 @@ public class BankingSystemGUI extends JFrame {
    }
 
 
-   private void reinitializeSystem() {
+   // Called with the new credentials after the system is reinitialized
+   public void setCredentialsListener(Consumer<BankCredentials> listener) {
+       credentialsListener = listener;
+   }
+
+   public BankCredentials getCredentials() {
+       return new BankCredentials(password, passwordRow, passwordCol);
+   }
+
+   // Starts over in this window, on the same journal: a second window would open the ledger
+   // a second time and both would append at the same record index
+   private void reinitializeSystem(JLabel balanceLabel) {
+       if (importing) {
+           JOptionPane.showMessageDialog(this, "Wait for the import to finish.");
+           return;
+       }
        String inputPassword = JOptionPane.showInputDialog(this, "Enter your password to reinitialize:");
        if (inputPassword != null && inputPassword.equals(password)) {
            int confirmation = JOptionPane.showConfirmDialog(this, "Are you sure you want to reinitialize the system? All data will be lost.", "Confirmation", JOptionPane.YES_NO_OPTION);
            if (confirmation == JOptionPane.YES_OPTION) {
-               initializeAccountData();
+               try {
+                   initializeAccountData();
+               } catch (IllegalStateException ex) {
+                   JOptionPane.showMessageDialog(this, "Could not save: " + ex.getMessage());
+                   return;
+               }
+               balanceLabel.setText(getBalanceText());
+               if (credentialsListener != null) {
+                   credentialsListener.accept(getCredentials());
+               }
                JOptionPane.showMessageDialog(this, "System reinitialized successfully!");
-
-               // Close the current window and open a new instance
-               this.dispose();
-               SwingUtilities.invokeLater(BankingSystemGUI::new);
            }
        } else {
            JOptionPane.showMessageDialog(this, "Incorrect password!");
        }
    }
-    private void logTransaction(String message) {
-        transactionHistory.add(message);
-        updateTransactionHistory();
+    // Queues one record for the journal and shows it in the history; the write happens in the background.
+    // Throws IllegalStateException, queueing nothing, if the journal writer is closed.
+    private void recordTransaction(char op, String account, long amountCents) {
+        Transaction t = new Transaction(System.currentTimeMillis(), op, Transaction.accountId(account), amountCents);
+        journalWriter.submit(t);
+        logTransaction(t);
+        updateSaveStatus();
+    }
+
+    private void updateSaveStatus() {
+        IOException error = journalWriter.getLastError();
+        long pending = journalWriter.getPending();
+        if (error != null) {
+            saveStatusLabel.setForeground(Color.RED);
+            saveStatusLabel.setText("Saving failed (" + error.getMessage() + "), retrying. " + pending + " change(s) not saved.");
+        } else if (pending > 0) {
+            saveStatusLabel.setForeground(Color.DARK_GRAY);
+            saveStatusLabel.setText("Saving " + pending + " change(s)...");
+        } else {
+            saveStatusLabel.setForeground(new Color(0, 120, 0));
+            saveStatusLabel.setText("All changes saved.");
+        }
+    }
+
+    // Runs on the EDT, so the wait is short; records that did not make it are reported rather
+    // than waited on, and the journal is closed either way so a new window can open it
+    private void closePersistence() {
+        if (!journalWriter.close(CLOSE_WAIT_MILLIS)) {
+            long pending = journalWriter.getPending();
+            IOException error = journalWriter.getLastError();
+            JOptionPane.showMessageDialog(null, pending + " banking change(s) could not be saved"
+                    + (error != null ? " (" + error.getMessage() + ")" : "") + ".");
+        }
+        journal.close();
+    }
+
+    // Entries logged this session; older ones stay in the journal until the history tab scrolls to them
+    private void logTransaction(Transaction t) {
+        logTransactions(Collections.singletonList(t));
     }
 
-    private void updateTransactionHistory() {
-        if (historyArea != null) {
-            StringBuilder historyText = new StringBuilder();
-            for (String transaction : transactionHistory) {
-                historyText.append(transaction).append("\n");
+    private void logTransactions(List<Transaction> transactions) {
+        for (Transaction t : transactions) {
+            transactionHistory.append(t);
+        }
+        if (historyModel != null) {
+            historyModel.transactionsAdded(transactions.size());
+            if (historyIndex != null) {
+                for (Transaction t : transactions) {
+                    historyIndex.add(t);
+                }
+                if (statements != null) {
+                    for (Transaction t : transactions) {
+                        statements.add(t);
+                    }
+                    showStatements();
+                }
+            }
+            if (historyModel.isShowingResults()) {
+                applyFilter();
+                return;
             }
-            historyArea.setText(historyText.toString());
+            int last = historyModel.getRowCount() - 1;
+            historyTable.scrollRectToVisible(historyTable.getCellRect(last, 0, true));
         }
     }
 
+    // Streams a CSV statement in on a background thread. Rows are checked against the balance rules,
+    // written one batch per journal flush, and shown once their batch is on disk.
+    private void importStatement(JLabel balanceLabel) {
+        JFileChooser chooser = new JFileChooser();
+        if (importing || chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        importing = true;
+        saveStatusLabel.setText("Importing " + file.getName() + "...");
+        Thread importer = new Thread(() -> {
+            String message;
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+                TransactionCsv.ImportResult result = TransactionCsv.importCsv(in, accounts, TransactionCsv.DEFAULT_BATCH_SIZE, batch -> {
+                    long target = journalWriter.submitAll(batch);
+                    try {
+                        if (!journalWriter.awaitDurable(target)) {
+                            throw new IOException("Journal writer stopped");
+                        }
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Import interrupted");
+                    }
+                    SwingUtilities.invokeLater(() -> {
+                        logTransactions(batch);
+                        balanceLabel.setText(getBalanceText());
+                    });
+                });
+                StringBuilder text = new StringBuilder(result.toString());
+                for (String error : result.getErrors()) {
+                    text.append("\n").append(error);
+                }
+                message = text.toString();
+            } catch (IOException | IllegalStateException ex) {
+                // Balances hold only the batches that reached the journal
+                message = "Import failed: " + ex.getMessage();
+            }
+            String report = message;
+            SwingUtilities.invokeLater(() -> {
+                importing = false;
+                balanceLabel.setText(getBalanceText());
+                updateSaveStatus();
+                JOptionPane.showMessageDialog(this, report);
+            });
+        }, "csv-import");
+        importer.setDaemon(true);
+        importer.start();
+    }
+
+    private void exportStatement() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File file = chooser.getSelectedFile();
+        long submitted = journalWriter.getSubmitted();
+        Thread exporter = new Thread(() -> {
+            String message;
+            long start = System.nanoTime();
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+                // Everything logged so far, once it has reached the journal
+                journalWriter.awaitDurable(submitted);
+                long rows = TransactionCsv.exportCsv(journal, journal.getRecordCount(), out);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                message = String.format("Exported %d rows in %.2f s (%.0f rows/s).", rows, seconds, rows / seconds);
+            } catch (IOException ex) {
+                message = "Export failed: " + ex.getMessage();
+            } catch (InterruptedException ex) {
+                message = "Export interrupted.";
+            }
+            String report = message;
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this, report));
+        }, "csv-export");
+        exporter.setDaemon(true);
+        exporter.start();
+    }
+
+    private JPanel createFilterBar() {
+        JPanel filterBar = new JPanel(new FlowLayout(FlowLayout.LEFT, 5, 2));
+        filterAccount = new JComboBox<>(new String[]{"Any account", "Savings", "Spendings"});
+        filterType = new JComboBox<>(new String[]{"Any type", "Initialized", "Deposit", "Withdrawal", "Transfer", "Reset"});
+        filterFrom = new JTextField(7);
+        filterTo = new JTextField(7);
+        filterMin = new JTextField(5);
+        filterMax = new JTextField(5);
+        filterFrom.setToolTipText("yyyy-MM-dd");
+        filterTo.setToolTipText("yyyy-MM-dd (inclusive)");
+        JButton applyButton = new JButton("Filter");
+        JButton clearButton = new JButton("Clear");
+        filterStatus = new JLabel(" ");
+
+        filterBar.add(filterAccount);
+        filterBar.add(filterType);
+        filterBar.add(new JLabel("From:"));
+        filterBar.add(filterFrom);
+        filterBar.add(new JLabel("To:"));
+        filterBar.add(filterTo);
+        filterBar.add(new JLabel("$ min:"));
+        filterBar.add(filterMin);
+        filterBar.add(new JLabel("max:"));
+        filterBar.add(filterMax);
+        filterBar.add(applyButton);
+        filterBar.add(clearButton);
+        filterBar.add(filterStatus);
+
+        applyButton.addActionListener(e -> applyFilter());
+        clearButton.addActionListener(e -> {
+            historyModel.clearResults();
+            filterStatus.setText(" ");
+        });
+        return filterBar;
+    }
+
+    // Runs the filter against the history index, building the index in the background on first use
+    private void applyFilter() {
+        TransactionIndex.Query query;
+        try {
+            query = buildQuery();
+        } catch (IllegalArgumentException ex) {
+            JOptionPane.showMessageDialog(this, "Invalid filter: " + ex.getMessage());
+            return;
+        }
+        if (historyIndex == null) {
+            filterPending = true;
+            if (!indexing) {
+                buildHistoryIndex();
+            }
+            filterStatus.setText("Indexing history...");
+            return;
+        }
+        long start = System.nanoTime();
+        int[] rows = historyIndex.query(query);
+        double millis = (System.nanoTime() - start) / 1e6;
+        historyModel.showResults(historyIndex.getLedger(), rows);
+        filterStatus.setText(String.format("%d of %d match (%.2f ms)", rows.length, historyIndex.size(), millis));
+    }
+
+    private TransactionIndex.Query buildQuery() {
+        TransactionIndex.Query query = new TransactionIndex.Query()
+                .account(filterAccount.getSelectedIndex() - 1)
+                .op(FILTER_OPS[filterType.getSelectedIndex()]);
+        long from = filterFrom.getText().trim().isEmpty() ? Long.MIN_VALUE : parseDate(filterFrom.getText());
+        // The "to" day is included, so the range ends at the following midnight
+        long to = filterTo.getText().trim().isEmpty() ? Long.MAX_VALUE : parseDate(filterTo.getText()) + 24L * 60 * 60 * 1000;
+        long min = filterMin.getText().trim().isEmpty() ? Long.MIN_VALUE : parseAmount(filterMin.getText());
+        long max = filterMax.getText().trim().isEmpty() ? Long.MAX_VALUE : parseAmount(filterMax.getText());
+        return query.between(from, to).amountBetween(min, max);
+    }
+
+    private static long parseDate(String text) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+        format.setLenient(false);
+        try {
+            return format.parse(text.trim()).getTime();
+        } catch (ParseException ex) {
+            throw new IllegalArgumentException("dates are yyyy-MM-dd");
+        }
+    }
+
+    private static long parseAmount(String text) {
+        try {
+            return Transaction.toCents(Double.parseDouble(text.trim()));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("amounts must be numbers");
+        }
+    }
+
+    // Reads the stored history off the EDT; entries from this session are added on the EDT at the end
+    private void buildHistoryIndex() {
+        indexing = true;
+        long stored = storedRecords;
+        Thread loader = new Thread(() -> {
+            TransactionIndex index = new TransactionIndex();
+            try {
+                for (long from = 0; from < stored; from += TransactionTableModel.PAGE_SIZE) {
+                    for (Transaction t : journal.readRecords(from, TransactionTableModel.PAGE_SIZE)) {
+                        index.add(t);
+                    }
+                }
+            } catch (IOException ex) {
+                SwingUtilities.invokeLater(() -> {
+                    indexing = false;
+                    filterPending = false;
+                    statementsPending = false;
+                    filterStatus.setText("Could not read history: " + ex.getMessage());
+                    statementSummary.setText("Could not read history: " + ex.getMessage());
+                });
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                for (int i = 0; i < transactionHistory.size(); i++) {
+                    index.add(transactionHistory.get(i));
+                }
+                historyIndex = index;
+                indexing = false;
+                if (filterPending) {
+                    filterPending = false;
+                    applyFilter();
+                }
+                if (statementsPending) {
+                    computeStatements();
+                }
+            });
+        }, "history-index");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    // Statements need the whole history, so this waits for the history index and then scans a
+    // snapshot of its ledger on a background thread. Entries logged meanwhile are folded in on the
+    // EDT when it finishes; after that logTransactions() keeps the open month current.
+    private void computeStatements() {
+        statementsPending = true;
+        if (historyIndex == null) {
+            if (!indexing) {
+                buildHistoryIndex();
+            }
+            statementSummary.setText("Reading history...");
+            return;
+        }
+        TransactionLedger ledger = historyIndex.getLedger();
+        TransactionLedger snapshot = ledger.snapshot();
+        long thresholdCents = Transaction.toCents(lowBalanceThreshold);
+        statementSummary.setText("Working out statements...");
+        Thread worker = new Thread(() -> {
+            TransactionAnalytics analytics = TransactionAnalytics.compute(snapshot, thresholdCents, ZoneId.systemDefault());
+            SwingUtilities.invokeLater(() -> {
+                for (int i = snapshot.size(); i < ledger.size(); i++) {
+                    analytics.add(ledger.get(i));
+                }
+                statements = analytics;
+                statementsPending = false;
+                statementModel.setAnalytics(analytics);
+                showStatements();
+            });
+        }, "history-statements");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void showStatements() {
+        statementModel.refresh();
+        statementSummary.setText(String.format("<html>%s<br>Below $%.2f: Savings %d times, Spendings %d times "
+                        + "(%d entries, %.1f ms)</html>", statements.getTrend(3), lowBalanceThreshold,
+                statements.getLowBalanceIncidents(Transaction.SAVINGS),
+                statements.getLowBalanceIncidents(Transaction.SPENDINGS),
+                statements.getEntryCount(), statements.getComputeMillis()));
+    }
+
     private String getBalanceText() {
         StringBuilder warning = new StringBuilder("<html>");
+        double savings = accounts.getBalance(Transaction.SAVINGS) / 100.0;
+        double spendings = accounts.getBalance(Transaction.SPENDINGS) / 100.0;
         if (savings < lowBalanceThreshold) {
             warning.append("<span style='color:red;'>Savings balance is low!</span><br>");
         }
@@ -248,37 +656,29 @@ public class BankingSystemGUI extends JFrame {
     }
 
     private void loadAccountData() {
-        File file = new File("account_data.txt");
-        if (!file.exists()) {
-            initializeAccountData();
-            return;
-        }
-        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
-            password = reader.readLine();
-            passwordRow = Integer.parseInt(reader.readLine());
-            passwordCol = Integer.parseInt(reader.readLine());            
-            savings = Double.parseDouble(reader.readLine());
-            spendings = Double.parseDouble(reader.readLine());
-            String line;
-            while ((line = reader.readLine()) != null) {
-                transactionHistory.add(line);
+        try {
+            // Only the latest checkpoint and the records after it are read here; the history
+            // itself is paged in when the history tab is first opened
+            journal.open();
+            storedRecords = journal.getRecordCount();
+            if (!journal.hasHeader()) {
+                initializeAccountData();
+                return;
             }
-        } catch (IOException | NumberFormatException ex) {
+            password = journal.getPassword();
+            passwordRow = journal.getPasswordRow();
+            passwordCol = journal.getPasswordCol();
+            accounts.setBalance(Transaction.SAVINGS, journal.getBalance(Transaction.SAVINGS));
+            accounts.setBalance(Transaction.SPENDINGS, journal.getBalance(Transaction.SPENDINGS));
+        } catch (IOException | RuntimeException ex) {
             JOptionPane.showMessageDialog(this, "Error loading account data. Initializing to $0.");
             initializeAccountData();
         }
     }
 
-    private void saveAccountData() {
-        try (PrintWriter writer = new PrintWriter(new FileWriter("account_data.txt"))) {
-            writer.println(password);
-            writer.println(passwordRow);
-            writer.println(passwordCol);
-            writer.println(savings);
-            writer.println(spendings);
-            for (String transaction : transactionHistory) {
-                writer.println(transaction);
-            }
+    private void saveCredentials() {
+        try {
+            journal.writeHeader(password, passwordRow, passwordCol);
         } catch (IOException ex) {
             JOptionPane.showMessageDialog(this, "Error saving account data.");
         }
@@ -287,11 +687,13 @@ public class BankingSystemGUI extends JFrame {
     private void initializeAccountData() {
         password = promptForPassword("Set your banking system password:");
         initializePasswordGrid();
-        savings = promptForInitialAmount("Enter your initial savings amount:");
-        spendings = promptForInitialAmount("Enter your initial spendings amount:");
-        logTransaction("Initialized Savings: $" + savings);
-        logTransaction("Initialized Spendings: $" + spendings);
-        saveAccountData();
+        long savings = Transaction.toCents(promptForInitialAmount("Enter your initial savings amount:"));
+        long spendings = Transaction.toCents(promptForInitialAmount("Enter your initial spendings amount:"));
+        saveCredentials();
+        recordTransaction(Transaction.INIT, "Savings", savings);
+        recordTransaction(Transaction.INIT, "Spendings", spendings);
+        accounts.setBalance(Transaction.SAVINGS, savings);
+        accounts.setBalance(Transaction.SPENDINGS, spendings);
     }
 
     private String promptForPassword(String message) {
@@ -324,6 +726,6 @@ public class BankingSystemGUI extends JFrame {
     }
 
     public static void main(String[] args) {
-        SwingUtilities.invokeLater(BankingSystemGUI::new);
+        SwingUtilities.invokeLater(() -> new BankingSystemGUI().setVisible(true));
     }
 }
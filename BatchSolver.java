@@ -0,0 +1,199 @@
+package sudoku;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Headless entry point for regression and throughput sweeps. Streams a puzzle file (one puzzle
+// per line in PuzzleFormat), solves puzzles on a bounded worker pool and writes one solution per
+// line in input order, then prints throughput, p50/p99 latency and failure counts. Each puzzle
+// gets its own time budget, so one pathological line is reported as timed out instead of
+// stalling the batch.
+// Usage: java sudoku.BatchSolver <puzzles> [solutions|-] [threads] [budgetMillis]
+public class BatchSolver {
+    public static final long DEFAULT_BUDGET_MILLIS = 10_000;
+    private static final long QUEUE_POLL_MILLIS = 100;
+    private static final int SOLVED = 0;
+    private static final int UNSOLVABLE = 1;
+    private static final int INVALID = 2;
+    private static final int TIMED_OUT = 3;
+    private static final Result END = new Result(null, 0, SOLVED);
+
+    private final int threads;
+    private final int window;
+    private final long budgetMillis;
+    private long[] latencies = new long[1024];
+    private int solved;
+    private int unsolvable;
+    private int invalid;
+    private int timedOut;
+
+    public BatchSolver(int threads) {
+        this(threads, DEFAULT_BUDGET_MILLIS);
+    }
+
+    public BatchSolver(int threads, long budgetMillis) {
+        this.threads = threads;
+        this.window = threads * 16;
+        this.budgetMillis = budgetMillis;
+    }
+
+    // Solves every puzzle from in and writes results to out. Returns a one-line summary.
+    public String run(BufferedReader in, Writer out) throws IOException, InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "batch-budget");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // The queue bounds how far the reader can run ahead of the writer
+        BlockingQueue<Future<Result>> pending = new ArrayBlockingQueue<>(window);
+        long start = System.nanoTime();
+
+        FutureTask<Void> writer = new FutureTask<>(() -> {
+            while (true) {
+                Result result = pending.take().get();
+                if (result == END) {
+                    out.flush();
+                    return null;
+                }
+                record(result);
+                out.write(result.text);
+                out.write('\n');
+            }
+        });
+        Thread writerThread = new Thread(writer, "batch-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String puzzle = line.trim();
+                if (puzzle.isEmpty() || puzzle.startsWith("#")) {
+                    continue;
+                }
+                enqueue(pending, workers.submit(() -> solve(puzzle, watchdog)), writer);
+            }
+            enqueue(pending, CompletableFuture.completedFuture(END), writer);
+            writer.get();
+        } catch (ExecutionException ex) {
+            throw new IOException("Writing solutions failed", ex.getCause());
+        } finally {
+            workers.shutdownNow();
+            watchdog.shutdownNow();
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        return summary(seconds);
+    }
+
+    // Waits for room in the queue, but gives up as soon as the writer has stopped, since nothing
+    // would ever take from the queue again
+    private static void enqueue(BlockingQueue<Future<Result>> pending, Future<Result> result, FutureTask<Void> writer)
+            throws InterruptedException, ExecutionException {
+        while (!pending.offer(result, QUEUE_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (writer.isDone()) {
+                result.cancel(true);
+                writer.get();
+                throw new ExecutionException(new IllegalStateException("Writer stopped early"));
+            }
+        }
+    }
+
+    // The watchdog raises the solver's stop flag when the budget runs out, which makes the search
+    // throw CancellationException
+    private Result solve(String puzzle, ScheduledExecutorService watchdog) {
+        long start = System.nanoTime();
+        int[][] board;
+        try {
+            board = PuzzleFormat.parse(puzzle);
+        } catch (IllegalArgumentException ex) {
+            return new Result("invalid: " + ex.getMessage(), System.nanoTime() - start, INVALID);
+        }
+        Sudoku sudoku = new Sudoku(board);
+        AtomicBoolean stop = new AtomicBoolean();
+        sudoku.getSolver().setStopFlag(stop);
+        ScheduledFuture<?> timeout = watchdog.schedule(() -> stop.set(true), budgetMillis, TimeUnit.MILLISECONDS);
+        boolean found;
+        try {
+            found = sudoku.solve();
+        } catch (CancellationException ex) {
+            return new Result("timed out after " + budgetMillis + " ms", System.nanoTime() - start, TIMED_OUT);
+        } finally {
+            timeout.cancel(false);
+        }
+        if (!found) {
+            return new Result("unsolvable", System.nanoTime() - start, UNSOLVABLE);
+        }
+        return new Result(PuzzleFormat.format(sudoku.getBoard()), System.nanoTime() - start, SOLVED);
+    }
+
+    private void record(Result result) {
+        int total = solved + unsolvable + invalid + timedOut;
+        if (total == latencies.length) {
+            latencies = Arrays.copyOf(latencies, total * 2);
+        }
+        latencies[total] = result.nanos;
+        if (result.status == SOLVED) {
+            solved++;
+        } else if (result.status == INVALID) {
+            invalid++;
+        } else if (result.status == TIMED_OUT) {
+            timedOut++;
+        } else {
+            unsolvable++;
+        }
+    }
+
+    private String summary(double seconds) {
+        int total = solved + unsolvable + invalid + timedOut;
+        long[] sorted = Arrays.copyOf(latencies, total);
+        Arrays.sort(sorted);
+        return String.format("%d puzzles in %.2f s (%.0f puzzles/s, %d threads) | p50 %.3f ms | p99 %.3f ms | "
+                        + "solved %d, unsolvable %d, invalid %d, timed out %d",
+                total, seconds, total / seconds, threads, percentile(sorted, 50), percentile(sorted, 99),
+                solved, unsolvable, invalid, timedOut);
+    }
+
+    private static double percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percent / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    private static class Result {
+        final String text;
+        final long nanos;
+        final int status;
+
+        Result(String text, long nanos, int status) {
+            this.text = text;
+            this.nanos = nanos;
+            this.status = status;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: java sudoku.BatchSolver <puzzles> [solutions|-] [threads] [budgetMillis]");
+            System.exit(2);
+        }
+        String output = args.length > 1 ? args[1] : "-";
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        long budget = args.length > 3 ? Long.parseLong(args[3]) : DEFAULT_BUDGET_MILLIS;
+        boolean toStdout = "-".equals(output);
+
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(args[0]), StandardCharsets.US_ASCII), 1 << 16);
+             Writer out = new BufferedWriter(toStdout
+                     ? new OutputStreamWriter(System.out, StandardCharsets.US_ASCII)
+                     : new OutputStreamWriter(new FileOutputStream(output), StandardCharsets.US_ASCII), 1 << 16)) {
+            String summary = new BatchSolver(threads, budget).run(in, out);
+            (toStdout ? System.err : System.out).println(summary);
+        }
+    }
+}
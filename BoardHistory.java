@@ -0,0 +1,64 @@
+package sudoku;
+
+// Undo and redo for edits to one board. Every state is a full copy of the board's cells, saved
+// with Sudoku.saveState into a ring allocated once up front, so recording an edit never
+// allocates. When the ring is full the oldest state is dropped. States after the current one
+// are the redo list; the next edit discards them.
+public class BoardHistory {
+    public static final int DEFAULT_CAPACITY = 256;
+
+    private final int cellCount;
+    private final int capacity;
+    private final byte[] states;
+    // State numbers only ever grow; state n lives in slot n % capacity
+    private long oldest;
+    private long current;
+    private long newest;
+
+    // Starts from the board as it is now
+    public BoardHistory(Sudoku sudoku, int capacity) {
+        this.cellCount = sudoku.getCellCount();
+        this.capacity = capacity;
+        states = new byte[capacity * cellCount];
+        sudoku.saveState(states, 0);
+    }
+
+    // Call after each edit
+    public void record(Sudoku sudoku) {
+        current++;
+        newest = current;
+        oldest = Math.max(oldest, newest - capacity + 1);
+        sudoku.saveState(states, slot(current));
+    }
+
+    public boolean canUndo() {
+        return current > oldest;
+    }
+
+    public boolean canRedo() {
+        return current < newest;
+    }
+
+    // Puts the board back to the previous state; false if there is none
+    public boolean undo(Sudoku sudoku) {
+        if (!canUndo()) {
+            return false;
+        }
+        current--;
+        sudoku.restoreState(states, slot(current));
+        return true;
+    }
+
+    public boolean redo(Sudoku sudoku) {
+        if (!canRedo()) {
+            return false;
+        }
+        current++;
+        sudoku.restoreState(states, slot(current));
+        return true;
+    }
+
+    private int slot(long state) {
+        return (int) (state % capacity) * cellCount;
+    }
+}
@@ -0,0 +1,249 @@
+package sudoku;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Solver that keeps a candidate bitmask per row, column and box, always branches on the
+// most-constrained cell and propagates naked and hidden singles before every branch.
+public class ConstraintSolver implements SudokuSolver {
+    private int size;
+    private int full;
+    private int[] cells;
+    private int[] rowMask;
+    private int[] colMask;
+    private int[] boxMask;
+    private int[] boxOf;
+    private int[][] units;
+    private int[] unitFill;
+    private int[] trail;
+    private int trailSize;
+    private int[] solution;
+    private int solutions;
+    private int limit;
+    private volatile long nodes;
+    private long backtracks;
+    private AtomicBoolean stop;
+
+    @Override
+    public boolean solve(Sudoku sudoku) {
+        if (!load(sudoku)) {
+            return false;
+        }
+        limit = 1;
+        run();
+        if (solutions == 0) {
+            return false;
+        }
+        for (int i = 0; i < cells.length; i++) {
+            sudoku.setBoardCell(i / size, i % size, solution[i]);
+        }
+        return true;
+    }
+
+    @Override
+    public int countSolutions(Sudoku sudoku, int limit) {
+        if (!load(sudoku)) {
+            return 0;
+        }
+        this.limit = limit;
+        run();
+        return solutions;
+    }
+
+    @Override
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    @Override
+    public void setStopFlag(AtomicBoolean stop) {
+        this.stop = stop;
+    }
+
+    private boolean load(Sudoku sudoku) {
+        size = sudoku.getSize();
+        int boxRows = sudoku.getBoxRows();
+        int boxCols = sudoku.getBoxCols();
+        int cellCount = size * size;
+        if (cells == null || cells.length != cellCount) {
+            cells = new int[cellCount];
+            rowMask = new int[size];
+            colMask = new int[size];
+            boxMask = new int[size];
+            boxOf = new int[cellCount];
+            trail = new int[cellCount];
+            solution = new int[cellCount];
+            units = new int[3 * size][size];
+            unitFill = new int[3 * size];
+        }
+        full = size == 32 ? -1 : (1 << size) - 1;
+        java.util.Arrays.fill(rowMask, 0);
+        java.util.Arrays.fill(colMask, 0);
+        java.util.Arrays.fill(boxMask, 0);
+        trailSize = 0;
+        solutions = 0;
+        nodes = 0;
+        backtracks = 0;
+
+        java.util.Arrays.fill(unitFill, 0);
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int i = row * size + col;
+                int box = (row / boxRows) * (size / boxCols) + col / boxCols;
+                boxOf[i] = box;
+                units[row][unitFill[row]++] = i;
+                units[size + col][unitFill[size + col]++] = i;
+                units[2 * size + box][unitFill[2 * size + box]++] = i;
+            }
+        }
+
+        for (int i = 0; i < cellCount; i++) {
+            int num = sudoku.getCell(i);
+            cells[i] = 0;
+            if (num == 0) {
+                continue;
+            }
+            if (num < 0 || num > size) {
+                return false;
+            }
+            int bit = 1 << (num - 1);
+            if ((candidates(i) & bit) == 0) {
+                return false;
+            }
+            place(i, bit);
+        }
+        // Givens are never undone.
+        trailSize = 0;
+        return true;
+    }
+
+    private int candidates(int i) {
+        return ~(rowMask[i / size] | colMask[i % size] | boxMask[boxOf[i]]) & full;
+    }
+
+    private void place(int i, int bit) {
+        cells[i] = Integer.numberOfTrailingZeros(bit) + 1;
+        rowMask[i / size] |= bit;
+        colMask[i % size] |= bit;
+        boxMask[boxOf[i]] |= bit;
+        trail[trailSize++] = i;
+    }
+
+    private void undo(int mark) {
+        while (trailSize > mark) {
+            int i = trail[--trailSize];
+            int bit = ~(1 << (cells[i] - 1));
+            rowMask[i / size] &= bit;
+            colMask[i % size] &= bit;
+            boxMask[boxOf[i]] &= bit;
+            cells[i] = 0;
+        }
+    }
+
+    private void run() {
+        try {
+            search();
+        } finally {
+            if (Metrics.ENABLED) {
+                Metrics.recordSearch(nodes, backtracks);
+            }
+        }
+    }
+
+    private void search() {
+        if ((++nodes & 1023) == 0 && (Thread.currentThread().isInterrupted() || (stop != null && stop.get()))) {
+            throw new CancellationException("Search interrupted");
+        }
+        int mark = trailSize;
+        if (!propagate()) {
+            backtracks++;
+            undo(mark);
+            return;
+        }
+
+        int best = -1;
+        int bestCount = Integer.MAX_VALUE;
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] == 0) {
+                int count = Integer.bitCount(candidates(i));
+                if (count < bestCount) {
+                    best = i;
+                    bestCount = count;
+                    if (count == 2) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        if (best < 0) {
+            if (++solutions == 1) {
+                System.arraycopy(cells, 0, solution, 0, cells.length);
+            }
+            undo(mark);
+            return;
+        }
+
+        int cand = candidates(best);
+        while (cand != 0 && solutions < limit) {
+            int bit = cand & -cand;
+            cand ^= bit;
+            int branchMark = trailSize;
+            place(best, bit);
+            search();
+            undo(branchMark);
+        }
+        undo(mark);
+    }
+
+    // Applies naked and hidden singles until nothing changes; false on contradiction.
+    private boolean propagate() {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < cells.length; i++) {
+                if (cells[i] == 0) {
+                    int cand = candidates(i);
+                    if (cand == 0) {
+                        return false;
+                    }
+                    if ((cand & (cand - 1)) == 0) {
+                        place(i, cand);
+                        changed = true;
+                    }
+                }
+            }
+
+            for (int[] unit : units) {
+                int placed = 0;
+                int seenOnce = 0;
+                int seenTwice = 0;
+                for (int i : unit) {
+                    if (cells[i] != 0) {
+                        placed |= 1 << (cells[i] - 1);
+                    } else {
+                        int cand = candidates(i);
+                        seenTwice |= seenOnce & cand;
+                        seenOnce |= cand;
+                    }
+                }
+                if ((placed | seenOnce) != full) {
+                    return false;
+                }
+                int singles = seenOnce & ~seenTwice & ~placed;
+                while (singles != 0) {
+                    int bit = singles & -singles;
+                    singles ^= bit;
+                    for (int i : unit) {
+                        if (cells[i] == 0 && (candidates(i) & bit) != 0) {
+                            place(i, bit);
+                            changed = true;
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,223 @@
+package sudoku;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Knuth's Algorithm X over a Dancing Links exact-cover matrix. Every candidate (row, col, num)
+// is a matrix row covering four constraints: the cell is filled, and num appears once in the
+// row, the column and the box. Handles any size the board's box geometry allows (16x16, 25x25, ...).
+public class DancingLinksSolver implements SudokuSolver {
+    private int size;
+    private int[] left;
+    private int[] right;
+    private int[] up;
+    private int[] down;
+    private int[] column;
+    private int[] count;
+    private boolean[] covered;
+    private int[] stack;
+    private int[] solution;
+    private int solutionLength;
+    private int solutions;
+    private int limit;
+    private volatile long nodes;
+    private long backtracks;
+    private AtomicBoolean stop;
+
+    @Override
+    public boolean solve(Sudoku sudoku) {
+        if (!build(sudoku)) {
+            return false;
+        }
+        limit = 1;
+        run();
+        if (solutions == 0) {
+            return false;
+        }
+        for (int i = 0; i < solutionLength; i++) {
+            int candidate = solution[i];
+            int num = candidate % size + 1;
+            int cell = candidate / size;
+            sudoku.setBoardCell(cell / size, cell % size, num);
+        }
+        return true;
+    }
+
+    @Override
+    public int countSolutions(Sudoku sudoku, int limit) {
+        if (!build(sudoku)) {
+            return 0;
+        }
+        this.limit = limit;
+        run();
+        return solutions;
+    }
+
+    @Override
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    @Override
+    public void setStopFlag(AtomicBoolean stop) {
+        this.stop = stop;
+    }
+
+    private boolean build(Sudoku sudoku) {
+        size = sudoku.getSize();
+        int boxRows = sudoku.getBoxRows();
+        int boxCols = sudoku.getBoxCols();
+        int cellCount = size * size;
+        int columns = 4 * cellCount;
+        int nodeCount = 1 + columns + 4 * cellCount * size;
+        if (left == null || left.length != nodeCount) {
+            left = new int[nodeCount];
+            right = new int[nodeCount];
+            up = new int[nodeCount];
+            down = new int[nodeCount];
+            column = new int[nodeCount];
+            count = new int[columns + 1];
+            covered = new boolean[columns + 1];
+            stack = new int[cellCount];
+            solution = new int[cellCount];
+        }
+        solutions = 0;
+        nodes = 0;
+        backtracks = 0;
+
+        // Node 0 is the root, nodes 1..columns are the column headers
+        for (int c = 0; c <= columns; c++) {
+            left[c] = c == 0 ? columns : c - 1;
+            right[c] = c == columns ? 0 : c + 1;
+            up[c] = c;
+            down[c] = c;
+            column[c] = c;
+            count[c] = 0;
+            covered[c] = false;
+        }
+
+        int node = columns + 1;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int box = (row / boxRows) * (size / boxCols) + col / boxCols;
+                for (int d = 0; d < size; d++) {
+                    int first = node;
+                    link(node++, 1 + row * size + col);
+                    link(node++, 1 + cellCount + row * size + d);
+                    link(node++, 1 + 2 * cellCount + col * size + d);
+                    link(node++, 1 + 3 * cellCount + box * size + d);
+                    for (int j = first; j < node; j++) {
+                        left[j] = j == first ? node - 1 : j - 1;
+                        right[j] = j == node - 1 ? first : j + 1;
+                    }
+                }
+            }
+        }
+
+        // Givens are selected up front; a clash between two givens means there is no solution
+        for (int cell = 0; cell < cellCount; cell++) {
+            int num = sudoku.getCell(cell);
+            if (num == 0) {
+                continue;
+            }
+            if (num < 0 || num > size) {
+                return false;
+            }
+            int first = columns + 1 + 4 * (cell * size + num - 1);
+            for (int j = first; j < first + 4; j++) {
+                if (covered[column[j]]) {
+                    return false;
+                }
+            }
+            for (int j = first; j < first + 4; j++) {
+                cover(column[j]);
+            }
+        }
+        return true;
+    }
+
+    private void link(int node, int col) {
+        column[node] = col;
+        up[node] = up[col];
+        down[node] = col;
+        down[up[col]] = node;
+        up[col] = node;
+        count[col]++;
+    }
+
+    private void cover(int c) {
+        covered[c] = true;
+        right[left[c]] = right[c];
+        left[right[c]] = left[c];
+        for (int i = down[c]; i != c; i = down[i]) {
+            for (int j = right[i]; j != i; j = right[j]) {
+                down[up[j]] = down[j];
+                up[down[j]] = up[j];
+                count[column[j]]--;
+            }
+        }
+    }
+
+    private void uncover(int c) {
+        for (int i = up[c]; i != c; i = up[i]) {
+            for (int j = left[i]; j != i; j = left[j]) {
+                count[column[j]]++;
+                down[up[j]] = j;
+                up[down[j]] = j;
+            }
+        }
+        right[left[c]] = c;
+        left[right[c]] = c;
+        covered[c] = false;
+    }
+
+    private void run() {
+        try {
+            search(0);
+        } finally {
+            if (Metrics.ENABLED) {
+                Metrics.recordSearch(nodes, backtracks);
+            }
+        }
+    }
+
+    private void search(int depth) {
+        if ((++nodes & 1023) == 0 && (Thread.currentThread().isInterrupted() || (stop != null && stop.get()))) {
+            throw new CancellationException("Search interrupted");
+        }
+        if (right[0] == 0) {
+            if (++solutions == 1) {
+                int firstNode = 1 + 4 * size * size;
+                for (int k = 0; k < depth; k++) {
+                    solution[k] = (stack[k] - firstNode) / 4;
+                }
+                solutionLength = depth;
+            }
+            return;
+        }
+
+        int best = right[0];
+        for (int c = right[best]; c != 0; c = right[c]) {
+            if (count[c] < count[best]) {
+                best = c;
+            }
+        }
+        if (count[best] == 0) {
+            backtracks++;
+            return;
+        }
+
+        cover(best);
+        for (int r = down[best]; r != best && solutions < limit; r = down[r]) {
+            stack[depth] = r;
+            for (int j = right[r]; j != r; j = right[j]) {
+                cover(column[j]);
+            }
+            search(depth + 1);
+            for (int j = left[r]; j != r; j = left[j]) {
+                uncover(column[j]);
+            }
+        }
+        uncover(best);
+    }
+}
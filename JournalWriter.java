@@ -0,0 +1,220 @@
+package sudoku;
+
+import javax.swing.*;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+// Write-behind persistence for the banking window. Button handlers hand records to submit() and
+// return straight away; a background thread collects whatever arrives within BATCH_WINDOW_MILLIS
+// and writes it to the journal with a single fsync (group commit). submitAll() queues a batch
+// that is always written as one unit. The queue is bounded, so a stalled disk eventually slows
+// submitters down instead of letting memory grow. The listener is told on the EDT whenever the
+// durable count changes or a write fails.
+public class JournalWriter {
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final long BATCH_WINDOW_MILLIS = 5;
+    public static final int MAX_BATCH = 256;
+    private static final long RETRY_MILLIS = 1000;
+    private static final long CLOSE_TIMEOUT_MILLIS = 10_000;
+    private static final List<Transaction> STOP = new ArrayList<>();
+
+    private final AccountJournal journal;
+    private final BlockingQueue<List<Transaction>> queue;
+    private final Consumer<JournalWriter> listener;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong durable = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong writeNanos = new AtomicLong();
+    private volatile IOException lastError;
+    // Counted down by close(); a batch stuck retrying gets one last attempt instead of waiting on
+    private final CountDownLatch stopRequested = new CountDownLatch(1);
+    private final Thread thread;
+    private final Thread shutdownHook;
+    private boolean closed;
+
+    // listener may be null
+    public JournalWriter(AccountJournal journal, int capacity, Consumer<JournalWriter> listener) {
+        this.journal = journal;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.listener = listener;
+        thread = new Thread(this::writeLoop, "journal-writer");
+        thread.setDaemon(true);
+        thread.start();
+        // Also flush if the JVM exits without the window being closed (e.g. the Sudoku window exits)
+        shutdownHook = new Thread(this::close, "journal-writer-flush");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    // Queues one record; blocks only while the queue is full
+    public void submit(Transaction t) {
+        submitAll(Collections.singletonList(t));
+    }
+
+    // Queues records that are written together, with one fsync. Returns the durable count that
+    // means they are on disk, for awaitDurable().
+    public long submitAll(List<Transaction> transactions) {
+        // Held while queueing so durable counts line up with submission order
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("Journal writer is closed");
+            }
+            long target = submitted.addAndGet(transactions.size());
+            try {
+                queue.put(transactions);
+            } catch (InterruptedException ex) {
+                submitted.addAndGet(-transactions.size());
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while queueing journal records", ex);
+            }
+            return target;
+        }
+    }
+
+    // Blocks until at least count records are on disk. Returns false if the writer stopped first.
+    public boolean awaitDurable(long count) throws InterruptedException {
+        synchronized (durable) {
+            while (durable.get() < count) {
+                if (!thread.isAlive()) {
+                    return false;
+                }
+                durable.wait(100);
+            }
+        }
+        return true;
+    }
+
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    public long getDurable() {
+        return durable.get();
+    }
+
+    public long getPending() {
+        return submitted.get() - durable.get();
+    }
+
+    // The error from the most recent failed write, cleared once a write succeeds
+    public IOException getLastError() {
+        return lastError;
+    }
+
+    public String getStatsReport() {
+        long count = batches.get();
+        return String.format("%d records in %d batches (%.1f per batch), avg write+fsync %.2f ms, %d pending",
+                durable.get(), count, count == 0 ? 0 : (double) durable.get() / count,
+                count == 0 ? 0 : writeNanos.get() / 1e6 / count, getPending());
+    }
+
+    // Writes everything already submitted, then stops the thread. Safe to call more than once.
+    public void close() {
+        close(CLOSE_TIMEOUT_MILLIS);
+    }
+
+    // As close(), but waits at most timeoutMillis. Returns false if records were still unwritten
+    // by then (see getPending()); the thread keeps trying each of them once more and then stops.
+    public boolean close(long timeoutMillis) {
+        synchronized (this) {
+            if (!closed) {
+                closed = true;
+                stopRequested.countDown();
+                // Never blocks: submitters are shut out now and STOP may wait its turn
+                if (!queue.offer(STOP)) {
+                    Thread stopper = new Thread(() -> {
+                        try {
+                            queue.put(STOP);
+                        } catch (InterruptedException ex) {
+                            // Leave the rest queued
+                        }
+                    }, "journal-writer-stop");
+                    stopper.setDaemon(true);
+                    stopper.start();
+                }
+                try {
+                    Runtime.getRuntime().removeShutdownHook(shutdownHook);
+                } catch (IllegalStateException ex) {
+                    // Already shutting down, i.e. we are running as the hook
+                }
+            }
+        }
+        try {
+            thread.join(timeoutMillis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        return !thread.isAlive() && getPending() == 0;
+    }
+
+    private void writeLoop() {
+        List<Transaction> batch = new ArrayList<>();
+        boolean stopping = false;
+        try {
+            while (!stopping) {
+                List<Transaction> first = queue.take();
+                if (first == STOP) {
+                    break;
+                }
+                batch.addAll(first);
+                // Wait a moment for more records so a burst of clicks costs one fsync
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(BATCH_WINDOW_MILLIS);
+                while (batch.size() < MAX_BATCH) {
+                    List<Transaction> next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    if (next == STOP) {
+                        stopping = true;
+                        break;
+                    }
+                    batch.addAll(next);
+                }
+                write(batch, stopping || stopRequested.getCount() == 0);
+                batch.clear();
+            }
+        } catch (InterruptedException ex) {
+            // Not interrupted by close(); leave whatever is queued
+        }
+    }
+
+    // Retries a failed batch until it is written, except on the way out where one attempt is all we get
+    private void write(List<Transaction> batch, boolean stopping) throws InterruptedException {
+        while (true) {
+            long start = System.nanoTime();
+            try {
+                journal.appendAll(batch);
+                writeNanos.addAndGet(System.nanoTime() - start);
+                batches.incrementAndGet();
+                synchronized (durable) {
+                    durable.addAndGet(batch.size());
+                    durable.notifyAll();
+                }
+                lastError = null;
+                notifyListener();
+                return;
+            } catch (IOException ex) {
+                lastError = ex;
+                notifyListener();
+                if (stopping) {
+                    return;
+                }
+                // Wakes early when close() is called, for the one last attempt
+                stopping = stopRequested.await(RETRY_MILLIS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void notifyListener() {
+        if (listener != null) {
+            SwingUtilities.invokeLater(() -> listener.accept(this));
+        }
+    }
+}
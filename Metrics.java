@@ -0,0 +1,298 @@
+package sudoku;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Counters and latency histograms for the solver and the banking storage. Switched on with
+// -Dsudoku.metrics=true, which registers them over JMX as sudoku:type=Metrics; adding
+// -Dsudoku.metrics.logSeconds=N also prints the report every N seconds. Every call site checks
+// ENABLED first, and since it is a static final the JIT drops the whole block when it is off.
+// Counters are LongAdders so solver threads never contend on a shared cache line.
+public class Metrics implements MetricsMBean {
+    public static final boolean ENABLED = Boolean.getBoolean("sudoku.metrics");
+    public static final String OBJECT_NAME = "sudoku:type=Metrics";
+
+    static final LongAdder solverSearches = new LongAdder();
+    static final LongAdder solverNodes = new LongAdder();
+    static final LongAdder solverBacktracks = new LongAdder();
+    static final LongAdder generationRetries = new LongAdder();
+    static final LongAdder validityChecks = new LongAdder();
+    static final LatencyHistogram generation = new LatencyHistogram();
+    static final LatencyHistogram validation = new LatencyHistogram();
+    static final LatencyHistogram journalWrite = new LatencyHistogram();
+    static final LatencyHistogram journalFsync = new LatencyHistogram();
+    static final LatencyHistogram snapshotWrite = new LatencyHistogram();
+    static final LatencyHistogram journalOpen = new LatencyHistogram();
+    static final LatencyHistogram gridPaint = new LatencyHistogram();
+    static final LatencyHistogram gridRebuild = new LatencyHistogram();
+    private static volatile long historySize;
+
+    static {
+        if (ENABLED) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new Metrics(), new ObjectName(OBJECT_NAME));
+            } catch (JMException ex) {
+                // Already registered by another class loader; the counters still work
+            }
+            long seconds = Long.getLong("sudoku.metrics.logSeconds", 0);
+            if (seconds > 0) {
+                ScheduledExecutorService logger = Executors.newSingleThreadScheduledExecutor(r -> {
+                    Thread thread = new Thread(r, "metrics-log");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                logger.scheduleAtFixedRate(() -> System.out.print(report()), seconds, seconds, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    // Log2-bucketed latencies in nanoseconds: bucket i holds values below 2^i, so percentiles are
+    // exact to within a factor of two, which is enough to tell a page-cache write from a disk flush.
+    public static class LatencyHistogram {
+        private final LongAdder[] buckets = new LongAdder[64];
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+        LatencyHistogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void record(long nanos) {
+            if (nanos < 0) {
+                nanos = 0;
+            }
+            buckets[64 - Long.numberOfLeadingZeros(nanos)].increment();
+            count.increment();
+            totalNanos.add(nanos);
+            maxNanos.accumulate(nanos);
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public double getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / 1e6 / n;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / 1e6;
+        }
+
+        // Upper bound of the bucket holding the given fraction of samples, capped at the maximum
+        public double getPercentileMillis(double fraction) {
+            long n = count.sum();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = (long) Math.ceil(n * fraction);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i].sum();
+                if (seen >= rank) {
+                    long bound = i == 0 ? 0 : i >= 63 ? Long.MAX_VALUE : (1L << i) - 1;
+                    return Math.min(bound, maxNanos.get()) / 1e6;
+                }
+            }
+            return getMaxMillis();
+        }
+
+        void reset() {
+            for (LongAdder bucket : buckets) {
+                bucket.reset();
+            }
+            count.reset();
+            totalNanos.reset();
+            maxNanos.reset();
+        }
+
+        String summary() {
+            return String.format("%d, mean %.3f ms, p50 %.3f ms, p99 %.3f ms, max %.3f ms", getCount(),
+                    getMeanMillis(), getPercentileMillis(0.5), getPercentileMillis(0.99), getMaxMillis());
+        }
+    }
+
+    // Called once per solve or count, with that call's totals, so the search loop itself only
+    // touches plain fields
+    static void recordSearch(long nodes, long backtracks) {
+        solverSearches.increment();
+        solverNodes.add(nodes);
+        solverBacktracks.add(backtracks);
+    }
+
+    static void setHistorySize(long records) {
+        historySize = records;
+    }
+
+    static String report() {
+        return String.format("solver: %d searches, %d nodes, %d backtracks%n"
+                        + "generation: %s, %d rejected clue removals%n"
+                        + "validation: %d isValid checks; validate %s%n"
+                        + "journal append: %s%n"
+                        + "journal fsync: %s%n"
+                        + "snapshot write: %s%n"
+                        + "journal open: %s%n"
+                        + "history: %d records%n"
+                        + "grid paint: %s%n"
+                        + "grid new game: %s%n",
+                solverSearches.sum(), solverNodes.sum(), solverBacktracks.sum(),
+                generation.summary(), generationRetries.sum(),
+                validityChecks.sum(), validation.summary(),
+                journalWrite.summary(), journalFsync.summary(), snapshotWrite.summary(), journalOpen.summary(),
+                historySize, gridPaint.summary(), gridRebuild.summary());
+    }
+
+    @Override
+    public long getSolverSearches() {
+        return solverSearches.sum();
+    }
+
+    @Override
+    public long getSolverNodes() {
+        return solverNodes.sum();
+    }
+
+    @Override
+    public long getSolverBacktracks() {
+        return solverBacktracks.sum();
+    }
+
+    @Override
+    public long getGenerations() {
+        return generation.getCount();
+    }
+
+    @Override
+    public long getGenerationRetries() {
+        return generationRetries.sum();
+    }
+
+    @Override
+    public long getValidityChecks() {
+        return validityChecks.sum();
+    }
+
+    @Override
+    public long getValidations() {
+        return validation.getCount();
+    }
+
+    @Override
+    public double getValidationP99Millis() {
+        return validation.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public long getJournalWrites() {
+        return journalWrite.getCount();
+    }
+
+    @Override
+    public double getJournalWriteP50Millis() {
+        return journalWrite.getPercentileMillis(0.5);
+    }
+
+    @Override
+    public double getJournalWriteP99Millis() {
+        return journalWrite.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public long getJournalFsyncs() {
+        return journalFsync.getCount();
+    }
+
+    @Override
+    public double getJournalFsyncP99Millis() {
+        return journalFsync.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public double getSnapshotWriteP99Millis() {
+        return snapshotWrite.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public double getJournalOpenMaxMillis() {
+        return journalOpen.getMaxMillis();
+    }
+
+    @Override
+    public long getHistorySize() {
+        return historySize;
+    }
+
+    @Override
+    public double getGridPaintP99Millis() {
+        return gridPaint.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public double getGridRebuildMaxMillis() {
+        return gridRebuild.getMaxMillis();
+    }
+
+    @Override
+    public String getReport() {
+        return report();
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder counter : new LongAdder[]{solverSearches, solverNodes, solverBacktracks, generationRetries, validityChecks}) {
+            counter.reset();
+        }
+        for (LatencyHistogram histogram : new LatencyHistogram[]{generation, validation, journalWrite, journalFsync, snapshotWrite, journalOpen,
+                gridPaint, gridRebuild}) {
+            histogram.reset();
+        }
+    }
+
+    // Generates and solves puzzles and appends to a scratch journal, then prints the report. Run
+    // once with -Dsudoku.metrics=true and once without to see what the instrumentation costs.
+    // Usage: java -Dsudoku.metrics=true sudoku.Metrics [puzzles]
+    public static void main(String[] args) throws IOException {
+        int puzzles = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        long start = System.nanoTime();
+        PuzzleGenerator generator = new PuzzleGenerator();
+        for (int i = 0; i < puzzles; i++) {
+            Sudoku puzzle = generator.generate(9);
+            Sudoku reference = new Sudoku(puzzle.getBoard());
+            reference.setSolver(new BacktrackingSolver());
+            reference.countSolutions(2);
+            puzzle.solve();
+        }
+        double solverMillis = (System.nanoTime() - start) / 1e6;
+
+        File directory = Files.createTempDirectory("sudoku-metrics").toFile();
+        AccountJournal journal = new AccountJournal(directory);
+        journal.open();
+        for (int i = 0; i < 1000; i++) {
+            journal.append(new Transaction(System.currentTimeMillis(), Transaction.DEPOSIT, Transaction.SAVINGS, 100));
+        }
+        journal.close();
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+
+        System.out.printf("metrics %s; %d puzzles generated and solved in %.1f ms%n",
+                ENABLED ? "enabled" : "disabled", puzzles, solverMillis);
+        if (ENABLED) {
+            System.out.print(report());
+        }
+    }
+}
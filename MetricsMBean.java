@@ -0,0 +1,44 @@
+package sudoku;
+
+// Management interface of Metrics, registered as sudoku:type=Metrics. Times are in milliseconds.
+public interface MetricsMBean {
+    long getSolverSearches();
+
+    long getSolverNodes();
+
+    long getSolverBacktracks();
+
+    long getGenerations();
+
+    long getGenerationRetries();
+
+    long getValidityChecks();
+
+    long getValidations();
+
+    double getValidationP99Millis();
+
+    long getJournalWrites();
+
+    double getJournalWriteP50Millis();
+
+    double getJournalWriteP99Millis();
+
+    long getJournalFsyncs();
+
+    double getJournalFsyncP99Millis();
+
+    double getSnapshotWriteP99Millis();
+
+    double getJournalOpenMaxMillis();
+
+    long getHistorySize();
+
+    double getGridPaintP99Millis();
+
+    double getGridRebuildMaxMillis();
+
+    String getReport();
+
+    void reset();
+}
@@ -0,0 +1,284 @@
+package sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+// Splits the search tree at the first few most-constrained cells into fork/join subtasks. Each
+// subtask owns a flat copy of the board and finishes its branch with the size's sequential engine.
+// The first solution found stops every other task; in counting mode the per-task counts are summed.
+public class ParallelSolver implements SudokuSolver {
+    public static final int DEFAULT_SPLIT_DEPTH = 3;
+    private static final long STOP_POLL_MILLIS = 10;
+
+    private final ForkJoinPool pool;
+    private final int splitDepth;
+    private final LongAdder nodes = new LongAdder();
+    private AtomicBoolean externalStop;
+
+    public ParallelSolver() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_SPLIT_DEPTH);
+    }
+
+    public ParallelSolver(int parallelism, int splitDepth) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.splitDepth = splitDepth;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    @Override
+    public boolean solve(Sudoku sudoku) {
+        Search search = new Search(sudoku, 1);
+        run(search);
+        int[] solution = search.solution.get();
+        if (solution == null) {
+            return false;
+        }
+        int size = sudoku.getSize();
+        for (int i = 0; i < solution.length; i++) {
+            sudoku.setBoardCell(i / size, i % size, solution[i]);
+        }
+        return true;
+    }
+
+    @Override
+    public int countSolutions(Sudoku sudoku, int limit) {
+        Search search = new Search(sudoku, limit);
+        run(search);
+        return Math.min(search.count.get(), limit);
+    }
+
+    @Override
+    public long getNodeCount() {
+        return nodes.sum();
+    }
+
+    @Override
+    public void setStopFlag(AtomicBoolean stop) {
+        this.externalStop = stop;
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private void run(Search search) {
+        nodes.reset();
+        ForkJoinTask<Void> root = pool.submit(new SplitTask(search, search.initial, 0));
+        try {
+            // Leaf engines poll only search.stop, so the caller's flag is copied into it from here
+            while (true) {
+                try {
+                    root.get(STOP_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    break;
+                } catch (TimeoutException ex) {
+                    if (search.externalStopped()) {
+                        search.stop.set(true);
+                    }
+                }
+            }
+        } catch (InterruptedException ex) {
+            search.stop.set(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Search interrupted");
+        } catch (ExecutionException ex) {
+            search.stop.set(true);
+            if (ex.getCause() instanceof CancellationException) {
+                throw (CancellationException) ex.getCause();
+            }
+            throw new IllegalStateException(ex.getCause());
+        }
+        if (search.stop.get() && search.externalStopped()) {
+            throw new CancellationException("Search interrupted");
+        }
+    }
+
+    // State shared by all subtasks of one solve or count call
+    private class Search {
+        final int size;
+        final int boxRows;
+        final int boxCols;
+        final int limit;
+        final int[] initial;
+        final AtomicBoolean stop = new AtomicBoolean();
+        final AtomicInteger count = new AtomicInteger();
+        final AtomicReference<int[]> solution = new AtomicReference<>();
+        final AtomicBoolean caller = externalStop;
+
+        Search(Sudoku sudoku, int limit) {
+            size = sudoku.getSize();
+            boxRows = sudoku.getBoxRows();
+            boxCols = sudoku.getBoxCols();
+            this.limit = limit;
+            initial = new int[size * size];
+            for (int i = 0; i < initial.length; i++) {
+                initial[i] = sudoku.getCell(i);
+            }
+        }
+
+        boolean stopped() {
+            if (caller != null && caller.get()) {
+                stop.set(true);
+            }
+            return stop.get();
+        }
+
+        boolean externalStopped() {
+            return caller != null && caller.get();
+        }
+
+        // Bitmask of digits still possible in cell i
+        int candidates(int[] cells, int i) {
+            int row = i / size;
+            int col = i % size;
+            int used = 0;
+            for (int k = 0; k < size; k++) {
+                int r = cells[row * size + k];
+                int c = cells[k * size + col];
+                if (r != 0) used |= 1 << (r - 1);
+                if (c != 0) used |= 1 << (c - 1);
+            }
+            int boxRow = row / boxRows * boxRows;
+            int boxCol = col / boxCols * boxCols;
+            for (int r = 0; r < boxRows; r++) {
+                for (int c = 0; c < boxCols; c++) {
+                    int v = cells[(boxRow + r) * size + boxCol + c];
+                    if (v != 0) used |= 1 << (v - 1);
+                }
+            }
+            return ~used & ((1 << size) - 1);
+        }
+    }
+
+    private class SplitTask extends RecursiveAction {
+        private final Search search;
+        private final int[] cells;
+        private final int depth;
+
+        SplitTask(Search search, int[] cells, int depth) {
+            this.search = search;
+            this.cells = cells;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (search.stopped()) {
+                return;
+            }
+            nodes.increment();
+            int best = -1;
+            int bestCandidates = 0;
+            int bestCount = Integer.MAX_VALUE;
+            if (depth < splitDepth) {
+                for (int i = 0; i < cells.length; i++) {
+                    if (cells[i] == 0) {
+                        int cand = search.candidates(cells, i);
+                        int count = Integer.bitCount(cand);
+                        if (count < bestCount) {
+                            best = i;
+                            bestCandidates = cand;
+                            bestCount = count;
+                            if (count <= 1) {
+                                break;
+                            }
+                        }
+                    }
+                }
+                if (best >= 0 && bestCount == 0) {
+                    return;
+                }
+            }
+            if (best < 0) {
+                solveLeaf();
+                return;
+            }
+
+            List<SplitTask> children = new ArrayList<>(bestCount);
+            while (bestCandidates != 0) {
+                int bit = bestCandidates & -bestCandidates;
+                bestCandidates ^= bit;
+                int[] child = cells.clone();
+                child[best] = Integer.numberOfTrailingZeros(bit) + 1;
+                children.add(new SplitTask(search, child, depth + 1));
+            }
+            invokeAll(children);
+        }
+
+        private void solveLeaf() {
+            int size = search.size;
+            int[][] grid = new int[size][size];
+            for (int i = 0; i < cells.length; i++) {
+                grid[i / size][i % size] = cells[i];
+            }
+            Sudoku leaf = new Sudoku(grid);
+            SudokuSolver engine = leaf.getSolver();
+            engine.setStopFlag(search.stop);
+            try {
+                if (search.limit == 1) {
+                    if (engine.solve(leaf) && search.solution.compareAndSet(null, flatten(leaf))) {
+                        search.count.incrementAndGet();
+                        search.stop.set(true);
+                    }
+                } else {
+                    int remaining = search.limit - search.count.get();
+                    if (remaining > 0) {
+                        int found = engine.countSolutions(leaf, remaining);
+                        if (search.count.addAndGet(found) >= search.limit) {
+                            search.stop.set(true);
+                        }
+                    }
+                }
+            } catch (CancellationException ex) {
+                // Another branch already finished the search
+            } finally {
+                nodes.add(engine.getNodeCount());
+            }
+        }
+
+        private int[] flatten(Sudoku leaf) {
+            int size = search.size;
+            int[] flat = new int[size * size];
+            for (int i = 0; i < flat.length; i++) {
+                flat[i] = leaf.getCell(i);
+            }
+            return flat;
+        }
+    }
+
+    // Reports wall time and speedup over one thread for each thread count up to the core count
+    public static void main(String[] args) {
+        int puzzles = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        PuzzleGenerator generator = new PuzzleGenerator(42);
+        List<int[][]> corpus = new ArrayList<>();
+        for (int i = 0; i < puzzles; i++) {
+            corpus.add(generator.generate(size).getBoard());
+        }
+
+        double baseline = 0;
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int threads = 1; threads <= cores; threads *= 2) {
+            ParallelSolver solver = new ParallelSolver(threads, DEFAULT_SPLIT_DEPTH);
+            long start = System.nanoTime();
+            for (int[][] puzzle : corpus) {
+                Sudoku sudoku = new Sudoku(puzzle);
+                sudoku.setSolver(solver);
+                sudoku.countSolutions(2);
+            }
+            double millis = (System.nanoTime() - start) / 1e6;
+            if (threads == 1) {
+                baseline = millis;
+            }
+            System.out.printf("%2d threads: %8.1f ms  speedup %.2fx%n", threads, millis, baseline / millis);
+            solver.shutdown();
+        }
+    }
+}
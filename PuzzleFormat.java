@@ -0,0 +1,61 @@
+package sudoku;
+
+// Single-line puzzle text format: size*size characters read row by row. '.' or '0' marks an
+// empty cell, '1'-'9' are themselves and 'A' onwards continue from 10, so 16x16 and 25x25
+// grids fit in one character per cell (A=10 ... P=25).
+public class PuzzleFormat {
+    private static final int[] SIZES = {4, 6, 9, 16, 25};
+
+    public static int[][] parse(String line) {
+        String text = line.trim();
+        int size = 0;
+        for (int candidate : SIZES) {
+            if (candidate * candidate == text.length()) {
+                size = candidate;
+            }
+        }
+        if (size == 0) {
+            throw new IllegalArgumentException("Puzzle length " + text.length() + " is not a supported grid size");
+        }
+        int[][] board = new int[size][size];
+        for (int i = 0; i < text.length(); i++) {
+            int value = cellValue(text.charAt(i));
+            if (value < 0 || value > size) {
+                throw new IllegalArgumentException("Invalid cell '" + text.charAt(i) + "' at position " + i);
+            }
+            board[i / size][i % size] = value;
+        }
+        return board;
+    }
+
+    public static String format(int[][] board) {
+        StringBuilder text = new StringBuilder(board.length * board.length);
+        for (int[] row : board) {
+            for (int value : row) {
+                text.append(cellChar(value));
+            }
+        }
+        return text.toString();
+    }
+
+    private static int cellValue(char c) {
+        if (c == '.' || c == '0') {
+            return 0;
+        }
+        if (c >= '1' && c <= '9') {
+            return c - '0';
+        }
+        char upper = Character.toUpperCase(c);
+        if (upper >= 'A' && upper <= 'Z') {
+            return upper - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static char cellChar(int value) {
+        if (value == 0) {
+            return '.';
+        }
+        return value <= 9 ? (char) ('0' + value) : (char) ('A' + value - 10);
+    }
+}
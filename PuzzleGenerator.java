@@ -0,0 +1,220 @@
+package sudoku;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Builds one random full solution grid and then removes clues while the puzzle keeps a unique
+// solution, replacing the old "scatter random givens and retry until solvable" loop.
+public class PuzzleGenerator {
+    public static final long DEFAULT_BUDGET_MILLIS = 2000;
+
+    private final Random random;
+    private volatile long nodes;
+    private AtomicBoolean stop;
+    private final Map<Integer, long[]> stats = new TreeMap<>(); // size -> {count, totalNanos, maxNanos, clues}
+
+    public PuzzleGenerator() {
+        this(new Random());
+    }
+
+    public PuzzleGenerator(long seed) {
+        this(new Random(seed));
+    }
+
+    public PuzzleGenerator(Random random) {
+        this.random = random;
+    }
+
+    // Shared flag handed to every search the generator runs. Raised while the full grid is being
+    // built it aborts generation with a CancellationException; raised during clue removal it just
+    // ends removal early, like the time budget does.
+    public void setStopFlag(AtomicBoolean stop) {
+        this.stop = stop;
+    }
+
+    // Number of givens aimed for at each size; removal stops once it is reached
+    public static int targetClues(int size) {
+        switch (size) {
+            case 4: return 6;
+            case 6: return 14;
+            case 9: return 28;
+            case 16: return 110;
+            case 25: return 320;
+            default: return size * size / 2;
+        }
+    }
+
+    public Sudoku generate(int size) {
+        return generate(size, targetClues(size), DEFAULT_BUDGET_MILLIS);
+    }
+
+    // Generates a puzzle with a unique solution. Clue removal stops at targetClues or once the
+    // time budget runs out, so the result may keep a few more givens than asked for.
+    public Sudoku generate(int size, int targetClues, long budgetMillis) {
+        return generate(size, targetClues, budgetMillis, true);
+    }
+
+    // No time budget: removal always goes on to targetClues or until no clue can go, so the
+    // result depends only on the seed
+    public Sudoku generate(int size, int targetClues) {
+        return generate(size, targetClues, 0, false);
+    }
+
+    private Sudoku generate(int size, int targetClues, long budgetMillis, boolean timed) {
+        long start = System.nanoTime();
+        long deadline = start + budgetMillis * 1_000_000L;
+
+        // A small fill can finish before the solver looks at the flag; without a full grid there
+        // is nothing to remove clues from
+        checkStop();
+        int[][] grid = randomSolution(size);
+        checkStop();
+        Sudoku work = new Sudoku(grid);
+        work.getSolver().setStopFlag(stop);
+        int clues = size * size;
+
+        int[] order = new int[size * size];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        shuffle(order);
+
+        for (int i = 0; i < order.length && clues > targetClues && (!timed || System.nanoTime() < deadline)
+                && (stop == null || !stop.get()); i++) {
+            int row = order[i] / size;
+            int col = order[i] % size;
+            int value = grid[row][col];
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Generation interrupted");
+            }
+            work.setBoardCell(row, col, 0);
+            int solutions;
+            try {
+                solutions = work.countSolutions(2);
+            } catch (CancellationException ex) {
+                if (stop == null || !stop.get() || Thread.currentThread().isInterrupted()) {
+                    throw ex;
+                }
+                // Out of time: the puzzle as it was before this cell is still unique
+                break;
+            } finally {
+                nodes += work.getSolver().getNodeCount();
+            }
+            if (solutions == 1) {
+                grid[row][col] = 0;
+                clues--;
+            } else {
+                work.setBoardCell(row, col, value);
+                if (Metrics.ENABLED) {
+                    Metrics.generationRetries.increment();
+                }
+            }
+        }
+
+        record(size, System.nanoTime() - start, clues);
+        if (Metrics.ENABLED) {
+            Metrics.generation.record(System.nanoTime() - start);
+        }
+        return new Sudoku(grid);
+    }
+
+    private void checkStop() {
+        if (stop != null && stop.get()) {
+            throw new CancellationException("Generation stopped");
+        }
+    }
+
+    // Solver nodes visited by all uniqueness checks so far; used for progress reporting.
+    public long getNodeCount() {
+        return nodes;
+    }
+
+    private int[][] randomSolution(int size) {
+        // A random first row fixes the digit labelling; the solver fills in the rest
+        int[] firstRow = new int[size];
+        for (int i = 0; i < size; i++) {
+            firstRow[i] = i + 1;
+        }
+        shuffle(firstRow);
+        int[][] seed = new int[size][size];
+        seed[0] = firstRow;
+        Sudoku sudoku = new Sudoku(seed);
+        sudoku.getSolver().setStopFlag(stop);
+        sudoku.solve();
+        int[][] solved = sudoku.getBoard();
+
+        // Shuffle rows within bands, bands, columns within stacks and stacks; all keep the grid valid
+        int boxRows = sudoku.getBoxRows();
+        int boxCols = sudoku.getBoxCols();
+        int[] rows = bandPermutation(size, boxRows);
+        int[] cols = bandPermutation(size, boxCols);
+        int[][] grid = new int[size][size];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                grid[row][col] = solved[rows[row]][cols[col]];
+            }
+        }
+        return grid;
+    }
+
+    private int[] bandPermutation(int size, int bandSize) {
+        int[] bands = new int[size / bandSize];
+        for (int i = 0; i < bands.length; i++) {
+            bands[i] = i;
+        }
+        shuffle(bands);
+        int[] within = new int[bandSize];
+        int[] result = new int[size];
+        for (int b = 0; b < bands.length; b++) {
+            for (int i = 0; i < bandSize; i++) {
+                within[i] = i;
+            }
+            shuffle(within);
+            for (int i = 0; i < bandSize; i++) {
+                result[b * bandSize + i] = bands[b] * bandSize + within[i];
+            }
+        }
+        return result;
+    }
+
+    private void shuffle(int[] values) {
+        for (int i = values.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = values[i];
+            values[i] = values[j];
+            values[j] = tmp;
+        }
+    }
+
+    private synchronized void record(int size, long nanos, int clues) {
+        long[] entry = stats.computeIfAbsent(size, k -> new long[4]);
+        entry[0]++;
+        entry[1] += nanos;
+        entry[2] = Math.max(entry[2], nanos);
+        entry[3] += clues;
+    }
+
+    // One line per size: puzzles generated, average and worst latency, average clue count
+    public synchronized String getLatencyReport() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<Integer, long[]> e : stats.entrySet()) {
+            long[] entry = e.getValue();
+            report.append(String.format("%dx%d: %d puzzles, avg %.2f ms, max %.2f ms, avg %.1f clues%n",
+                    e.getKey(), e.getKey(), entry[0], entry[1] / 1e6 / entry[0], entry[2] / 1e6,
+                    (double) entry[3] / entry[0]));
+        }
+        return report.toString();
+    }
+
+    public static void main(String[] args) {
+        int puzzles = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        PuzzleGenerator generator = new PuzzleGenerator();
+        for (int size : new int[]{4, 6, 9, 16, 25}) {
+            for (int i = 0; i < puzzles; i++) {
+                generator.generate(size);
+            }
+        }
+        System.out.print(generator.getLatencyReport());
+    }
+}
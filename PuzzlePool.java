@@ -0,0 +1,194 @@
+package sudoku;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.LongAdder;
+
+// Keeps a few ready-to-play puzzles per size so New Game does not have to generate on demand.
+// A low-priority daemon thread tops the pools up, and an optional cache file warms them at startup.
+// The cache is replaced whole through a temp file and a rename, and every puzzle read back from it
+// is checked to be a valid grid with exactly one solution before it is offered to a player.
+public class PuzzlePool {
+    public static final int DEFAULT_CAPACITY = 3;
+
+    private final Map<Integer, BlockingQueue<int[][]>> pools = new LinkedHashMap<>();
+    private final PuzzleGenerator generator = new PuzzleGenerator();
+    private final File cacheFile;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refills = new LongAdder();
+    private final LongAdder refillNanos = new LongAdder();
+    private volatile long maxRefillNanos;
+    private Thread refiller;
+
+    // cacheFile may be null to keep the pool in memory only
+    public PuzzlePool(int[] sizes, int capacity, File cacheFile) {
+        for (int size : sizes) {
+            pools.put(size, new ArrayBlockingQueue<>(capacity));
+        }
+        this.cacheFile = cacheFile;
+    }
+
+    // Starts the refill thread, which first loads the cache file, if any
+    public synchronized void start() {
+        if (refiller != null) {
+            return;
+        }
+        refiller = new Thread(this::refillLoop, "puzzle-pool-refill");
+        refiller.setDaemon(true);
+        refiller.setPriority(Thread.MIN_PRIORITY);
+        refiller.start();
+    }
+
+    public void stop() {
+        Thread thread = refiller;
+        if (thread != null) {
+            thread.interrupt();
+        }
+    }
+
+    // Returns a pooled puzzle, or null if none of this size is ready
+    public Sudoku take(int size) {
+        BlockingQueue<int[][]> pool = pools.get(size);
+        int[][] puzzle = pool == null ? null : pool.poll();
+        if (puzzle == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        synchronized (this) {
+            notifyAll();
+        }
+        return puzzle == null ? null : new Sudoku(puzzle);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getAverageRefillMillis() {
+        long count = refills.sum();
+        return count == 0 ? 0 : refillNanos.sum() / 1e6 / count;
+    }
+
+    public String getStatsReport() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("hits %d, misses %d, refills %d, avg refill %.2f ms, max refill %.2f ms",
+                getHits(), getMisses(), refills.sum(), getAverageRefillMillis(), maxRefillNanos / 1e6));
+        for (Map.Entry<Integer, BlockingQueue<int[][]>> e : pools.entrySet()) {
+            report.append(String.format(" | %dx%d: %d ready", e.getKey(), e.getKey(), e.getValue().size()));
+        }
+        return report.toString();
+    }
+
+    private void refillLoop() {
+        loadCache();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                boolean added = false;
+                // Round-robin so one slow size cannot starve the others
+                for (Map.Entry<Integer, BlockingQueue<int[][]>> e : pools.entrySet()) {
+                    if (e.getValue().remainingCapacity() > 0) {
+                        long start = System.nanoTime();
+                        int[][] puzzle = generator.generate(e.getKey()).getBoard();
+                        long nanos = System.nanoTime() - start;
+                        refills.increment();
+                        refillNanos.add(nanos);
+                        maxRefillNanos = Math.max(maxRefillNanos, nanos);
+                        added |= e.getValue().offer(puzzle);
+                    }
+                }
+                if (added) {
+                    saveCache();
+                    continue;
+                }
+                synchronized (this) {
+                    while (allFull()) {
+                        wait();
+                    }
+                }
+            }
+        } catch (InterruptedException | CancellationException ex) {
+            // Shutting down
+        }
+    }
+
+    private boolean allFull() {
+        for (BlockingQueue<int[][]> pool : pools.values()) {
+            if (pool.remainingCapacity() > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // One puzzle per line in PuzzleFormat. Files from earlier versions add the solution after a
+    // space; it is ignored.
+    private void loadCache() {
+        if (cacheFile == null || !cacheFile.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(cacheFile), StandardCharsets.US_ASCII))) {
+            String line;
+            while ((line = reader.readLine()) != null && !allFull()) {
+                String[] parts = line.trim().split(" ");
+                try {
+                    int[][] puzzle = PuzzleFormat.parse(parts[0]);
+                    BlockingQueue<int[][]> pool = pools.get(puzzle.length);
+                    // A hand-edited or damaged line could still parse; only serve real puzzles
+                    if (pool != null && pool.remainingCapacity() > 0 && isPlayable(puzzle)) {
+                        pool.offer(puzzle);
+                    }
+                } catch (IllegalArgumentException ex) {
+                    // Skip damaged lines
+                }
+            }
+        } catch (IOException ex) {
+            // A missing or unreadable cache only means a cold start
+        }
+    }
+
+    private static boolean isPlayable(int[][] puzzle) {
+        Sudoku sudoku = new Sudoku(puzzle);
+        return sudoku.isGridValid() && sudoku.countSolutions(2) == 1;
+    }
+
+    private void saveCache() {
+        if (cacheFile == null) {
+            return;
+        }
+        File temp = new File(cacheFile.getPath() + ".tmp");
+        try {
+            try (FileOutputStream out = new FileOutputStream(temp)) {
+                Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.US_ASCII));
+                for (BlockingQueue<int[][]> pool : pools.values()) {
+                    for (int[][] puzzle : pool) {
+                        writer.write(PuzzleFormat.format(puzzle));
+                        writer.write('\n');
+                    }
+                }
+                writer.flush();
+                out.getChannel().force(true);
+            }
+            try {
+                Files.move(temp.toPath(), cacheFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException ex) {
+            // The cache is an optimisation only; the previous file is still whole
+            temp.delete();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package sudoku;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+// A small file that is always replaced whole, written so a crash at any point leaves a readable
+// copy. Two slots (<name>.a and <name>.b) are used in turn: each write goes to a temp file, is
+// forced to disk, then renamed over the older slot. Every slot starts with a header line holding
+// the format version, a generation number, the payload length and its CRC32; read() returns the
+// newest slot whose header and checksum are intact.
+public class SnapshotFile {
+    public static final int FORMAT_VERSION = 1;
+    private static final String MAGIC = "SNAPSHOT";
+
+    private final File directory;
+    private final File[] slots;
+    private long generation = -1;
+    private long lastWriteNanos;
+    private long lastReadNanos;
+
+    public SnapshotFile(File directory, String name) {
+        this.directory = directory;
+        slots = new File[]{new File(directory, name + ".a"), new File(directory, name + ".b")};
+    }
+
+    public boolean exists() {
+        return slots[0].exists() || slots[1].exists();
+    }
+
+    // Newest intact payload, or null if neither slot holds one
+    public synchronized byte[] read() {
+        long start = System.nanoTime();
+        byte[] newest = null;
+        long newestGeneration = -1;
+        for (File slot : slots) {
+            long[] slotGeneration = new long[1];
+            byte[] data = readSlot(slot, slotGeneration);
+            if (data != null && slotGeneration[0] > newestGeneration) {
+                newest = data;
+                newestGeneration = slotGeneration[0];
+            }
+        }
+        generation = Math.max(generation, newestGeneration);
+        lastReadNanos = System.nanoTime() - start;
+        return newest;
+    }
+
+    public synchronized void write(byte[] data) throws IOException {
+        long start = System.nanoTime();
+        if (generation < 0) {
+            // Never overwrite the newest slot, even if nothing was read first
+            read();
+        }
+        long next = generation + 1;
+        File target = slots[(int) (next % 2)];
+        File temp = new File(directory, target.getName() + ".tmp");
+
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        String header = String.format("%s %d %d %d %08x\n", MAGIC, FORMAT_VERSION, next, data.length, crc.getValue());
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(header.getBytes(StandardCharsets.US_ASCII));
+            out.write(data);
+            out.getChannel().force(true);
+        }
+        try {
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException ex) {
+            // The other slot still holds the previous generation if this is interrupted
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        forceDirectory();
+        generation = next;
+        lastWriteNanos = System.nanoTime() - start;
+        if (Metrics.ENABLED) {
+            Metrics.snapshotWrite.record(lastWriteNanos);
+        }
+    }
+
+    public synchronized void delete() {
+        for (File slot : slots) {
+            slot.delete();
+        }
+        generation = -1;
+    }
+
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    // Time taken by the last write, including both fsyncs
+    public synchronized double getLastWriteMillis() {
+        return lastWriteNanos / 1e6;
+    }
+
+    // Time taken by the last read(), i.e. recovery at startup
+    public synchronized double getLastReadMillis() {
+        return lastReadNanos / 1e6;
+    }
+
+    private static byte[] readSlot(File slot, long[] generationOut) {
+        if (!slot.exists()) {
+            return null;
+        }
+        byte[] file;
+        try {
+            file = Files.readAllBytes(slot.toPath());
+        } catch (IOException ex) {
+            return null;
+        }
+        int newline = 0;
+        while (newline < file.length && newline < 128 && file[newline] != '\n') {
+            newline++;
+        }
+        if (newline >= file.length || file[newline] != '\n') {
+            return null;
+        }
+        String[] header = new String(file, 0, newline, StandardCharsets.US_ASCII).split(" ");
+        try {
+            if (header.length != 5 || !MAGIC.equals(header[0]) || Integer.parseInt(header[1]) != FORMAT_VERSION) {
+                return null;
+            }
+            long slotGeneration = Long.parseLong(header[2]);
+            int length = Integer.parseInt(header[3]);
+            long checksum = Long.parseLong(header[4], 16);
+            if (file.length - newline - 1 != length) {
+                return null;
+            }
+            byte[] data = Arrays.copyOfRange(file, newline + 1, file.length);
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            if (crc.getValue() != checksum) {
+                return null;
+            }
+            generationOut[0] = slotGeneration;
+            return data;
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    // Makes the rename itself durable; not every platform lets a directory be opened, which is fine
+    private void forceDirectory() {
+        try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ex) {
+            // Best effort
+        }
+    }
+}
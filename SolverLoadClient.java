@@ -0,0 +1,141 @@
+package sudoku;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Load generator for SolverServer. A number of client threads each send requests back to back
+// until the total is reached, then it prints requests per second, latency percentiles and how
+// many replies came back with each status. Puzzles come from a PuzzleFormat file or are
+// generated up front so generation is not part of what is measured.
+public class SolverLoadClient {
+    private static final String USAGE = "Usage: java sudoku.SolverLoadClient [url] [clients] [requests] [solve|count|generate] [puzzles|size]";
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String url = args.length > 0 ? args[0] : "http://127.0.0.1:" + SolverServer.DEFAULT_PORT;
+        int clients = args.length > 1 ? parsePositive(args[1], "clients") : 16;
+        int requests = args.length > 2 ? parsePositive(args[2], "requests") : 2000;
+        String mode = args.length > 3 ? args[3] : "solve";
+        String source = args.length > 4 ? args[4] : "9";
+        if (!"solve".equals(mode) && !"count".equals(mode) && !"generate".equals(mode)) {
+            usage("unknown mode " + mode);
+        }
+
+        List<String> puzzles = new ArrayList<>();
+        int size = 9;
+        if (source.chars().allMatch(Character::isDigit)) {
+            size = Integer.parseInt(source);
+            if (!"generate".equals(mode)) {
+                PuzzleGenerator generator = new PuzzleGenerator(42);
+                for (int i = 0; i < 200; i++) {
+                    puzzles.add(PuzzleFormat.format(generator.generate(size).getBoard()));
+                }
+            }
+        } else {
+            try (BufferedReader in = new BufferedReader(new FileReader(source))) {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (!line.trim().isEmpty() && !line.startsWith("#")) {
+                        puzzles.add(line.trim());
+                    }
+                }
+            }
+            if (puzzles.isEmpty()) {
+                usage("no puzzles in " + source);
+            }
+        }
+        System.out.println(run(url, clients, requests, mode, puzzles, size));
+    }
+
+    private static int parsePositive(String text, String name) {
+        try {
+            int value = Integer.parseInt(text);
+            if (value > 0) {
+                return value;
+            }
+        } catch (NumberFormatException ex) {
+            // Reported below
+        }
+        usage(name + " must be a positive number");
+        return 0;
+    }
+
+    private static void usage(String problem) {
+        System.err.println(problem);
+        System.err.println(USAGE);
+        System.exit(2);
+    }
+
+    // Sends the requests and returns the report
+    public static String run(String url, int clients, int requests, String mode, List<String> puzzles, int size) throws InterruptedException {
+        if (clients <= 0 || requests <= 0) {
+            throw new IllegalArgumentException("clients and requests must be positive");
+        }
+        if (!"generate".equals(mode) && puzzles.isEmpty()) {
+            throw new IllegalArgumentException("no puzzles to send");
+        }
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        URI target = URI.create(url + ("generate".equals(mode) ? "/generate?size=" + size : "/" + mode));
+        long[] latencies = new long[requests];
+        int[] statuses = new int[requests];
+        AtomicInteger next = new AtomicInteger();
+
+        Thread[] threads = new Thread[clients];
+        long start = System.nanoTime();
+        for (int t = 0; t < clients; t++) {
+            threads[t] = new Thread(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < requests) {
+                    HttpRequest.Builder request = HttpRequest.newBuilder(target).timeout(Duration.ofSeconds(60));
+                    if ("generate".equals(mode)) {
+                        request.GET();
+                    } else {
+                        request.POST(HttpRequest.BodyPublishers.ofString(puzzles.get(i % puzzles.size())));
+                    }
+                    long sent = System.nanoTime();
+                    try {
+                        statuses[i] = http.send(request.build(), HttpResponse.BodyHandlers.ofString()).statusCode();
+                    } catch (IOException ex) {
+                        statuses[i] = -1;
+                    } catch (InterruptedException ex) {
+                        return;
+                    }
+                    latencies[i] = System.nanoTime() - sent;
+                }
+            }, "load-client-" + t);
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        Map<Integer, Integer> byStatus = new TreeMap<>();
+        for (int status : statuses) {
+            byStatus.merge(status, 1, Integer::sum);
+        }
+        return String.format("%d %s requests from %d clients in %.2f s: %.0f req/s | p50 %.2f ms | p90 %.2f ms | "
+                        + "p99 %.2f ms | p99.9 %.2f ms | max %.2f ms | status %s",
+                requests, mode, clients, seconds, requests / seconds, percentile(sorted, 0.50),
+                percentile(sorted, 0.90), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                sorted[sorted.length - 1] / 1e6, byStatus);
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        int index = (int) Math.ceil(fraction * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+}
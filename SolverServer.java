@@ -0,0 +1,266 @@
+package sudoku;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// Headless solver over loopback HTTP, for other tools on the same machine. Puzzles travel as one
+// line of PuzzleFormat text (81 characters for 9x9, up to 625 for 25x25); every reply is plain
+// text:
+//   POST /solve          body: puzzle        -> 200 solution | 422 unsolvable
+//   POST /count          body: puzzle        -> 200 unique | multiple | none
+//   GET  /generate?size=9                    -> 200 puzzle with a unique solution
+//   GET  /stats                              -> 200 counters
+// Any request may add ?budgetMillis=N (capped at the server's budget). Bad input gets 400, a
+// full server 503, a search that runs out of time 504 and anything unexpected 500. /generate
+// keeps fewer clues out when the budget runs short, and only times out if it could not even
+// build the full grid.
+//
+// Requests run on a fixed pool of platform threads, a few more than the number of searches
+// allowed at once so requests can queue for a permit while others search. A semaphore caps the
+// searches; a request waits for a permit for at most its own budget.
+public class SolverServer {
+    public static final int DEFAULT_PORT = 8765;
+    public static final long DEFAULT_BUDGET_MILLIS = 10_000;
+    private static final int MAX_BODY = 4096;
+
+    private final HttpServer server;
+    private final ExecutorService requests;
+    private final ScheduledExecutorService watchdog;
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final long budgetMillis;
+    private final LongAdder served = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder invalid = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    // port 0 picks a free port; see getPort()
+    public SolverServer(int port, int maxConcurrent, long budgetMillis) throws IOException {
+        this.maxConcurrent = maxConcurrent;
+        this.budgetMillis = budgetMillis;
+        permits = new Semaphore(maxConcurrent, true);
+        // Platform threads are costly, so a few more than the cap is enough to keep it busy
+        requests = Executors.newFixedThreadPool(maxConcurrent * 4, daemonThreads("solver-request"));
+        watchdog = Executors.newSingleThreadScheduledExecutor(daemonThreads("solver-budget"));
+        // Reply headers and body otherwise wait on Nagle's algorithm, about 40 ms per request
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(requests);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        requests.shutdownNow();
+        watchdog.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public String getStats() {
+        return String.format("served %d, invalid %d, busy %d, timed out %d, failed %d, in flight %d of %d%n",
+                served.sum(), invalid.sum(), rejected.sum(), timedOut.sum(), failed.sum(),
+                maxConcurrent - permits.availablePermits(), maxConcurrent);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            String method = exchange.getRequestMethod();
+            if ("/stats".equals(path)) {
+                reply(exchange, 200, getStats());
+                return;
+            }
+            boolean post = "/solve".equals(path) || "/count".equals(path);
+            if (!post && !"/generate".equals(path)) {
+                reply(exchange, 404, "unknown path " + path + "\n");
+                return;
+            }
+            if (!(post ? "POST" : "GET").equals(method)) {
+                reply(exchange, 405, (post ? "POST" : "GET") + " expected\n");
+                return;
+            }
+
+            long budget;
+            int[][] board = null;
+            int size = 9;
+            try {
+                budget = Math.min(budgetMillis, queryLong(exchange.getRequestURI(), "budgetMillis", budgetMillis));
+                if (post) {
+                    board = PuzzleFormat.parse(readBody(exchange));
+                } else {
+                    size = (int) queryLong(exchange.getRequestURI(), "size", 9);
+                    if (size != 4 && size != 6 && size != 9 && size != 16 && size != 25) {
+                        throw new IllegalArgumentException("size must be 4, 6, 9, 16 or 25");
+                    }
+                }
+            } catch (IllegalArgumentException ex) {
+                invalid.increment();
+                reply(exchange, 400, ex.getMessage() + "\n");
+                return;
+            }
+
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budget);
+            if (!permits.tryAcquire(budget, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                reply(exchange, 503, "busy\n");
+                return;
+            }
+            String result;
+            try {
+                long remaining = Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+                result = "/solve".equals(path) ? solve(board, remaining)
+                        : "/count".equals(path) ? count(board, remaining)
+                        : generate(size, remaining);
+            } catch (CancellationException ex) {
+                timedOut.increment();
+                reply(exchange, 504, "timed out after " + budget + " ms\n");
+                return;
+            } catch (RuntimeException ex) {
+                failed.increment();
+                Throwable cause = ex.getCause() != null ? ex.getCause() : ex;
+                reply(exchange, 500, "internal error: " + cause + "\n");
+                return;
+            } finally {
+                permits.release();
+            }
+            served.increment();
+            if (result == null) {
+                reply(exchange, 422, "unsolvable\n");
+            } else {
+                reply(exchange, 200, result + "\n");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            reply(exchange, 503, "shutting down\n");
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Solution text, or null if there is none
+    private String solve(int[][] board, long budget) {
+        Sudoku sudoku = new Sudoku(board);
+        return withBudget(sudoku.getSolver()::setStopFlag, budget,
+                () -> sudoku.solve() ? PuzzleFormat.format(sudoku.getBoard()) : null);
+    }
+
+    private String count(int[][] board, long budget) {
+        Sudoku sudoku = new Sudoku(board);
+        return withBudget(sudoku.getSolver()::setStopFlag, budget, () -> {
+            int solutions = sudoku.countSolutions(2);
+            return solutions == 0 ? "none" : solutions == 1 ? "unique" : "multiple";
+        });
+    }
+
+    private String generate(int size, long budget) {
+        PuzzleGenerator generator = new PuzzleGenerator();
+        return withBudget(generator::setStopFlag, budget, () ->
+                PuzzleFormat.format(generator.generate(size, PuzzleGenerator.targetClues(size), budget).getBoard()));
+    }
+
+    // The watchdog raises the stop flag handed to the search when the budget runs out, which makes
+    // the search throw CancellationException. Anything else it throws comes out wrapped in an
+    // IllegalStateException.
+    private String withBudget(Consumer<AtomicBoolean> stopFlag, long budget, Callable<String> search) {
+        AtomicBoolean stop = new AtomicBoolean();
+        stopFlag.accept(stop);
+        ScheduledFuture<?> timeout = watchdog.schedule(() -> stop.set(true), budget, TimeUnit.MILLISECONDS);
+        try {
+            return search.call();
+        } catch (CancellationException ex) {
+            throw ex;
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        } finally {
+            timeout.cancel(false);
+        }
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        try (InputStream in = exchange.getRequestBody()) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                if (body.size() + n > MAX_BODY) {
+                    throw new IllegalArgumentException("request body over " + MAX_BODY + " bytes");
+                }
+                body.write(buffer, 0, n);
+            }
+        }
+        return body.toString(StandardCharsets.US_ASCII);
+    }
+
+    private static long queryLong(URI uri, String name, long defaultValue) {
+        String query = uri.getRawQuery();
+        if (query == null) {
+            return defaultValue;
+        }
+        for (String pair : query.split("&")) {
+            if (pair.startsWith(name + "=")) {
+                try {
+                    long value = Long.parseLong(pair.substring(name.length() + 1));
+                    if (value <= 0) {
+                        throw new IllegalArgumentException(name + " must be positive");
+                    }
+                    return value;
+                } catch (NumberFormatException ex) {
+                    throw new IllegalArgumentException("bad " + name);
+                }
+            }
+        }
+        return defaultValue;
+    }
+
+    private static void reply(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.US_ASCII);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=us-ascii");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Usage: java sudoku.SolverServer [port] [maxConcurrent] [budgetMillis]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int maxConcurrent = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        long budget = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_BUDGET_MILLIS;
+        SolverServer server = new SolverServer(port, maxConcurrent, budget);
+        server.start();
+        System.out.printf("solver service on http://127.0.0.1:%d/ (%d concurrent searches, %d ms budget)%n",
+                server.getPort(), maxConcurrent, budget);
+        Thread.currentThread().join();
+    }
+}
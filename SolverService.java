@@ -0,0 +1,89 @@
+package sudoku;
+
+import javax.swing.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+// Runs solving and generation on a background thread so the Swing event thread never blocks.
+// Each request gets a time budget after which it is cancelled; completion callbacks run on the EDT.
+public class SolverService {
+    public static final long DEFAULT_BUDGET_MILLIS = 30_000;
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService watchdog;
+
+    public SolverService() {
+        // One worker keeps requests against the same board strictly ordered
+        executor = Executors.newSingleThreadExecutor(daemonThreads("sudoku-solver", Thread.MIN_PRIORITY + 2));
+        watchdog = Executors.newSingleThreadScheduledExecutor(daemonThreads("sudoku-watchdog", Thread.NORM_PRIORITY));
+    }
+
+    // Solves sudoku on the worker thread, so it must be a board nobody else touches, e.g.
+    // new Sudoku(model.getGivenBoard()). A cancelled task may still be writing to it when onDone
+    // runs; copy the result over only when the task succeeded.
+    public Task<Boolean> solve(Sudoku sudoku, long budgetMillis, Consumer<Task<Boolean>> onDone) {
+        return submit(sudoku::solve, budgetMillis, onDone);
+    }
+
+    public Task<Sudoku> generate(PuzzleGenerator generator, int size, long budgetMillis, Consumer<Task<Sudoku>> onDone) {
+        return submit(() -> generator.generate(size), budgetMillis, onDone);
+    }
+
+    public <T> Task<T> submit(Callable<T> work, long budgetMillis, Consumer<Task<T>> onDone) {
+        Task<T> task = new Task<>(work, onDone);
+        executor.execute(task);
+        if (budgetMillis > 0) {
+            task.timeout = watchdog.schedule(task::expire, budgetMillis, TimeUnit.MILLISECONDS);
+        }
+        return task;
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+        watchdog.shutdownNow();
+    }
+
+    private static ThreadFactory daemonThreads(String name, int priority) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            thread.setPriority(priority);
+            return thread;
+        };
+    }
+
+    // A cancellable request; done() hands it to the callback on the EDT whether it finished,
+    // failed, was cancelled by the user or ran out of time.
+    public static class Task<T> extends FutureTask<T> {
+        private final Consumer<Task<T>> onDone;
+        private volatile boolean timedOut;
+        private volatile ScheduledFuture<?> timeout;
+
+        Task(Callable<T> work, Consumer<Task<T>> onDone) {
+            super(work);
+            this.onDone = onDone;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        private void expire() {
+            timedOut = true;
+            if (!cancel(true)) {
+                timedOut = false;
+            }
+        }
+
+        @Override
+        protected void done() {
+            ScheduledFuture<?> pending = timeout;
+            if (pending != null) {
+                pending.cancel(false);
+            }
+            if (onDone != null) {
+                SwingUtilities.invokeLater(() -> onDone.accept(this));
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package sudoku;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.Collections;
+import java.util.List;
+
+// Table model for the statements tab: one row per month, newest first. The rows come from
+// TransactionAnalytics; after it takes in new entries only the open month's row is repainted,
+// unless that closed the month and added a row.
+public class StatementTableModel extends AbstractTableModel {
+    private static final String[] COLUMNS = {"Month", "Entries", "Deposits", "Withdrawals", "Transfers",
+            "Saved", "Spendings change", "Savings", "Spendings", "Low balance"};
+
+    private TransactionAnalytics analytics;
+    private List<TransactionAnalytics.Statement> rows = Collections.emptyList();
+
+    public void setAnalytics(TransactionAnalytics analytics) {
+        this.analytics = analytics;
+        refresh();
+    }
+
+    // Call after the analytics took in new entries
+    public void refresh() {
+        int before = rows.size();
+        rows = analytics.getStatements();
+        Collections.reverse(rows);
+        if (rows.size() == before && before > 0) {
+            fireTableRowsUpdated(0, 0);
+        } else {
+            fireTableDataChanged();
+        }
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        TransactionAnalytics.Statement statement = rows.get(row);
+        int savings = Transaction.SAVINGS;
+        int spendings = Transaction.SPENDINGS;
+        switch (column) {
+            case 0:
+                return statement.getMonth() + (row == 0 ? " (open)" : "");
+            case 1:
+                return statement.getEntries();
+            case 2:
+                return TransactionAnalytics.dollars(statement.getDeposits(savings) + statement.getDeposits(spendings));
+            case 3:
+                return TransactionAnalytics.dollars(statement.getWithdrawals(savings) + statement.getWithdrawals(spendings));
+            case 4:
+                return TransactionAnalytics.dollars(statement.getTransfersOut(savings) + statement.getTransfersOut(spendings));
+            case 5:
+                return TransactionAnalytics.dollars(statement.getChange(savings));
+            case 6:
+                return TransactionAnalytics.dollars(statement.getChange(spendings));
+            case 7:
+                return TransactionAnalytics.dollars(statement.getClosing(savings));
+            case 8:
+                return TransactionAnalytics.dollars(statement.getClosing(spendings));
+            default:
+                return statement.getLowBalanceIncidents(savings) + " / " + statement.getLowBalanceIncidents(spendings);
+        }
+    }
+}
@@ -3,19 +3,60 @@ package sudoku;
 import java.util.*;
 
 public class Sudoku {
-    private int[][] board;
-    private int[][] fixedBoard;
-    public boolean[][] fixed;
+    // Each cell is one byte: the value in the low seven bits, GIVEN in the top bit
+    static final int GIVEN = 0x80;
+    static final int VALUE_MASK = 0x7F;
+    // Stored for any value that does not fit in the value bits
+    public static final int OUT_OF_RANGE = VALUE_MASK;
+
+    private byte[] cells; // row-major
+    private byte[] givenCells; // the board as constructed, for resetToFixedValues
     private int size;
+    private int boxRows;
+    private int boxCols;
+    private SudokuSolver solver;
+    // Occurrences of each value per unit (rows, then columns, then boxes), size + 1 slots per
+    // unit, kept in step by setCell
+    private int[] counts;
+    private int[] givenCounts;
+    private int conflicts; // (unit, value) pairs that occur more than once
+    private int outOfRange; // cells holding a value outside 1..size
+    private int filled;
+    private int givenConflicts;
+    private int givenOutOfRange;
+    private int givenFilled;
+    private int pendingChecks; // isValid calls not yet added to Metrics, which gets them in blocks
 
     public Sudoku(int size) {
-        this.size = size;
-        board = new int[size][size];
-        fixedBoard = new int[size][size];
-        fixed = new boolean[size][size];
+        this(new int[size][size]);
         generatePuzzle();
     }
 
+    // Creates a puzzle whose non-zero cells are the fixed givens
+    public Sudoku(int[][] givens) {
+        this.size = givens.length;
+        // Boxes are as close to square as the size allows, e.g. 2x3 for a 6x6 grid
+        boxRows = (int) Math.sqrt(size);
+        while (size % boxRows != 0) {
+            boxRows--;
+        }
+        boxCols = size / boxRows;
+        solver = defaultSolver(size);
+        cells = new byte[size * size];
+        givenCells = new byte[size * size];
+        counts = new int[3 * size * (size + 1)];
+        givenCounts = new int[counts.length];
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                if (givens[row][col] != 0) {
+                    setCell(row * size + col, givens[row][col]);
+                    cells[row * size + col] |= GIVEN;
+                }
+            }
+        }
+        saveGivens();
+    }
+
     public void generatePuzzle() {
         Random random = new Random();
         int cellsToFill = size * size / 4; // Adjust number of pre-filled cells
@@ -24,85 +65,246 @@ public class Sudoku {
             int col = random.nextInt(size);
             int num = random.nextInt(size) + 1;
             if (isValid(row, col, num)) {
-                board[row][col] = num;
-                fixedBoard[row][col] = num;
-                fixed[row][col] = true;
+                setBoardCell(row, col, num);
+                cells[row * size + col] |= GIVEN;
             }
         }
+        saveGivens();
     }
+
+    // Answered from the occurrence counts: true if num is not yet in the row, column or box
     public boolean isValid(int row, int col, int num) {
-    	if (num > size) {
-    		return false;
-    	}
-        for (int i = 0; i < size; i++) {
-            if (board[row][i] == num || board[i][col] == num) {
-                return false;
-            }
+        if (Metrics.ENABLED && ++pendingChecks == 1024) {
+            publishChecks();
         }
-
-        int boxSize = (int) Math.sqrt(size);
-        int boxRowStart = (row / boxSize) * boxSize;
-        int boxColStart = (col / boxSize) * boxSize;
-
-        for (int i = 0; i < boxSize; i++) {
-            for (int j = 0; j < boxSize; j++) {
-                if (board[boxRowStart + i][boxColStart + j] == num) {
-                    return false;
-                }
-            }
+        if (num < 1 || num > size) {
+            return false;
         }
-        return true;
+        int stride = size + 1;
+        return counts[row * stride + num] == 0 && counts[(size + col) * stride + num] == 0
+                && counts[(2 * size + boxIndex(row, col)) * stride + num] == 0;
     }
 
-    // New: Validate the entire grid
+    // Validate the entire grid; answered from the occurrence counts instead of rescanning
     public boolean isGridValid() {
-        for (int row = 0; row < size; row++) {
-            for (int col = 0; col < size; col++) {
-                int num = board[row][col];
-                if (num != 0) {
-                    board[row][col] = 0; // Temporarily clear the cell
-                    if (!isValid(row, col, num)) {
-                        board[row][col] = num; // Restore the cell
-                        return false;
-                    }
-                    board[row][col] = num; // Restore the cell
-                }
-            }
+        return conflicts == 0 && outOfRange == 0;
+    }
+
+    // True if the cell holds a value that is out of range or repeated in its row, column or box
+    public boolean isConflict(int row, int col) {
+        int num = getCell(row, col);
+        if (num == 0) {
+            return false;
+        }
+        if (num > size) {
+            return true;
         }
-        return true;
+        int stride = size + 1;
+        return counts[row * stride + num] > 1 || counts[(size + col) * stride + num] > 1
+                || counts[(2 * size + boxIndex(row, col)) * stride + num] > 1;
+    }
+
+    public int getConflictCount() {
+        return conflicts + outOfRange;
+    }
+
+    public int getFilledCount() {
+        return filled;
     }
+
+    // Two array copies; nothing is recounted
     public void resetToFixedValues() {
-        for (int row = 0; row < size; row++) {
-            for (int col = 0; col < size; col++) {
-                board[row][col] = fixedBoard[row][col];
-            }
+        System.arraycopy(givenCells, 0, cells, 0, cells.length);
+        System.arraycopy(givenCounts, 0, counts, 0, counts.length);
+        conflicts = givenConflicts;
+        outOfRange = givenOutOfRange;
+        filled = givenFilled;
+    }
+
+    private void saveGivens() {
+        System.arraycopy(cells, 0, givenCells, 0, cells.length);
+        System.arraycopy(counts, 0, givenCounts, 0, counts.length);
+        givenConflicts = conflicts;
+        givenOutOfRange = outOfRange;
+        givenFilled = filled;
+    }
+
+    public int getCellCount() {
+        return cells.length;
+    }
+
+    // Copies every cell, given flags included, into getCellCount() bytes of state
+    public void saveState(byte[] state, int offset) {
+        System.arraycopy(cells, 0, state, offset, cells.length);
+    }
+
+    // Puts back a state taken with saveState and recounts the units from it
+    public void restoreState(byte[] state, int offset) {
+        System.arraycopy(state, offset, cells, 0, cells.length);
+        Arrays.fill(counts, 0);
+        conflicts = 0;
+        outOfRange = 0;
+        filled = 0;
+        for (int i = 0; i < cells.length; i++) {
+            count(i, cells[i] & VALUE_MASK, 1);
         }
     }
     
     public boolean solve() {
-        for (int row = 0; row < size; row++) {
-            for (int col = 0; col < size; col++) {
-                if (board[row][col] == 0) {
-                    for (int num = 1; num <= size; num++) {
-                        if (isValid(row, col, num)) {
-                            board[row][col] = num;
-                            if (solve()) return true;
-                            board[row][col] = 0;
-                        }
-                    }
-                    return false;
-                }
+        try {
+            return solver.solve(this);
+        } finally {
+            if (Metrics.ENABLED) {
+                publishChecks();
             }
         }
-        return true;
     }
 
+    public int countSolutions(int limit) {
+        try {
+            return solver.countSolutions(this, limit);
+        } finally {
+            if (Metrics.ENABLED) {
+                publishChecks();
+            }
+        }
+    }
+
+    private void publishChecks() {
+        Metrics.validityChecks.add(pendingChecks);
+        pendingChecks = 0;
+    }
+
+    // Exact cover scales better than bitmask propagation once the grid outgrows 9x9
+    public static SudokuSolver defaultSolver(int size) {
+        return size > 9 ? new DancingLinksSolver() : new ConstraintSolver();
+    }
+
+    public SudokuSolver getSolver() {
+        return solver;
+    }
+
+    public void setSolver(SudokuSolver solver) {
+        this.solver = solver;
+    }
+
+    // A fresh copy of the values as a grid, for code that wants rows and columns; hot paths should
+    // use getCell. This used to return the board itself, so writes into the result changed the
+    // puzzle: they are now lost, and must go through setBoardCell or setBoard instead.
     public int[][] getBoard() {
+        int[][] board = new int[size][size];
+        for (int i = 0; i < cells.length; i++) {
+            board[i / size][i % size] = cells[i] & VALUE_MASK;
+        }
+        return board;
+    }
+
+    public int getCell(int row, int col) {
+        return cells[row * size + col] & VALUE_MASK;
+    }
+
+    // Cell by row-major index
+    public int getCell(int index) {
+        return cells[index] & VALUE_MASK;
+    }
+
+    // Replaces the old public fixed[row][col]
+    public boolean isGiven(int row, int col) {
+        return (cells[row * size + col] & GIVEN) != 0;
+    }
+
+    // Just the givens as a grid, zero elsewhere: new Sudoku(getGivenBoard()) is a fresh copy of
+    // the puzzle that another thread can work on
+    public int[][] getGivenBoard() {
+        int[][] board = new int[size][size];
+        for (int i = 0; i < cells.length; i++) {
+            if ((cells[i] & GIVEN) != 0) {
+                board[i / size][i % size] = cells[i] & VALUE_MASK;
+            }
+        }
         return board;
     }
 
+    // A fresh copy of which cells are givens, shaped like the old public fixed array
+    public boolean[][] getGivens() {
+        boolean[][] givens = new boolean[size][size];
+        for (int i = 0; i < cells.length; i++) {
+            givens[i / size][i % size] = (cells[i] & GIVEN) != 0;
+        }
+        return givens;
+    }
+
+    // Writes a whole grid back, e.g. one taken from getBoard() and edited, through setCell
+    public void setBoard(int[][] board) {
+        if (board.length != size) {
+            throw new IllegalArgumentException("Board must be " + size + "x" + size);
+        }
+        for (int row = 0; row < size; row++) {
+            if (board[row].length != size) {
+                throw new IllegalArgumentException("Board must be " + size + "x" + size);
+            }
+            for (int col = 0; col < size; col++) {
+                setCell(row * size + col, board[row][col]);
+            }
+        }
+    }
+
     public void setBoardCell(int row, int col, int value) {
-        board[row][col] = value;
+        setCell(row * size + col, value);
+    }
+
+    // O(1): updates the occurrence counts of the old and new value. Values outside 0..126 are
+    // stored as OUT_OF_RANGE.
+    public void setCell(int index, int value) {
+        int stored = value >= 0 && value < OUT_OF_RANGE ? value : OUT_OF_RANGE;
+        int old = cells[index] & VALUE_MASK;
+        if (old == stored) {
+            return;
+        }
+        count(index, old, -1);
+        count(index, stored, 1);
+        cells[index] = (byte) (cells[index] & GIVEN | stored);
+    }
+
+    // Adds (delta 1) or removes (delta -1) one occurrence of value at the cell
+    private void count(int index, int value, int delta) {
+        if (value == 0) {
+            return;
+        }
+        filled += delta;
+        if (value > size) {
+            outOfRange += delta;
+            return;
+        }
+        int row = index / size;
+        int col = index % size;
+        int stride = size + 1;
+        int duplicates = change(row * stride + value, delta) + change((size + col) * stride + value, delta)
+                + change((2 * size + boxIndex(row, col)) * stride + value, delta);
+        conflicts += delta * duplicates;
+    }
+
+    // Returns 1 if the value just became, or just stopped being, duplicated in the unit
+    private int change(int slot, int delta) {
+        int before = counts[slot];
+        counts[slot] = before + delta;
+        return delta > 0 ? (before == 1 ? 1 : 0) : (before == 2 ? 1 : 0);
+    }
+
+    private int boxIndex(int row, int col) {
+        return (row / boxRows) * (size / boxCols) + col / boxCols;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getBoxRows() {
+        return boxRows;
+    }
+
+    public int getBoxCols() {
+        return boxCols;
     }
 
     public int getSize(Object s) {
@@ -115,6 +317,12 @@ public class Sudoku {
     	else if (s == "Hard") {
     		size = 9;
     	}
+    	else if (s == "Expert") {
+    		size = 16;
+    	}
+    	else if (s == "Master") {
+    		size = 25;
+    	}
     	return size;
     }    
 }
\ No newline at end of file
@@ -4,78 +4,161 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.LongSupplier;
 
 public class SudokuGUI extends JFrame {
-    private JTextField[][] fields;
+    private final SudokuGrid grid = new SudokuGrid(this::cellEdited);
+    private boolean[][] badInput; // text that is not a number
+    private int badInputs;
     private Sudoku sudoku;
+    private BoardHistory history;
+    private final PuzzleGenerator generator = new PuzzleGenerator();
+    private final SolverService solverService = new SolverService();
+    private final PuzzlePool puzzlePool = new PuzzlePool(new int[]{4, 6, 9, 16, 25}, PuzzlePool.DEFAULT_CAPACITY,
+            Boolean.parseBoolean(System.getProperty("sudoku.puzzleCache", "true")) ? new File("puzzle_cache.txt") : null);
+    private final long timeBudgetMillis = Long.getLong("sudoku.timeBudgetMillis", SolverService.DEFAULT_BUDGET_MILLIS);
+    private ProgressDialog progress;
+    private boolean busy;
     private BankingSystemGUI bank;
     private int size;
     private String password;
     private int passwordRow;
     private int passwordCol;
 
-    private String[] difficulties = {"Easy", "Medium", "Hard"};
+    private String[] difficulties = {"Easy", "Medium", "Hard", "Expert", "Master"};
     private JComboBox<String> difficultySelector = new JComboBox<>(difficulties);
+    private JComboBox<String> engineSelector = new JComboBox<>(new String[]{"Sequential", "Parallel"});
+    private ParallelSolver parallelSolver;
+    private static volatile double firstFrameMillis;
 
+    public SudokuGUI() {
+        this(null);
+    }
+
+    // Without a bank only the credentials are loaded, in the background; the banking window and
+    // its ledger are built on the first successful unlock
     public SudokuGUI(BankingSystemGUI bank) {
         this.bank = bank;
-        this.password = bank.getPassword();
-        this.passwordRow = bank.getPasswordRow();
-        this.passwordCol = bank.getPasswordCol();
+        if (bank != null) {
+            trackBank(bank);
+            useCredentials(bank.getCredentials());
+        } else {
+            loadCredentials();
+        }
         setInitialDifficulty();
         initializeSudoku();
+        puzzlePool.start();
 
         setTitle("Sudoku");
         setSize(600, 700);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLayout(new BorderLayout());
 
-        JPanel gridPanel = buildSudokuGrid();
+        grid.setPuzzle(sudoku);
         JPanel buttonPanel = buildButtonPanel();
 
-        add(gridPanel, BorderLayout.CENTER);
+        add(grid, BorderLayout.CENTER);
         add(buttonPanel, BorderLayout.SOUTH);
+        bindUndoKeys();
     }
 
     private void setInitialDifficulty() {
+        size = selectedSize();
+    }
+
+    private int selectedSize() {
         String selectedDifficulty = (String) difficultySelector.getSelectedItem();
         if ("Easy".equals(selectedDifficulty)) {
-            size = 4;
+            return 4;
         } else if ("Medium".equals(selectedDifficulty)) {
-            size = 6;
+            return 6;
+        } else if ("Expert".equals(selectedDifficulty)) {
+            return 16;
+        } else if ("Master".equals(selectedDifficulty)) {
+            return 25;
         } else {
-            size = 9;
+            return 9;
         }
     }
 
     private void initializeSudoku() {
         setInitialDifficulty(); // Update size based on selected difficulty
-        do {
-            sudoku = new Sudoku(size);
-        } while (!sudoku.solve());
-        sudoku.resetToFixedValues();
-        fields = new JTextField[size][size];
+        sudoku = generator.generate(size);
+        resetFields();
     }
 
-    private JPanel buildSudokuGrid() {
-        JPanel gridPanel = new JPanel(new GridLayout(size, size));
-        int[][] board = sudoku.getBoard();
+    private void resetFields() {
+        badInput = new boolean[size][size];
+        badInputs = 0;
+        history = new BoardHistory(sudoku, BoardHistory.DEFAULT_CAPACITY);
+    }
 
-        for (int row = 0; row < size; row++) {
-            for (int col = 0; col < size; col++) {
-                fields[row][col] = new JTextField();
-                fields[row][col].setHorizontalAlignment(JTextField.CENTER);
-                fields[row][col].setFont(new Font("SansSerif", Font.BOLD, 18));
-
-                if (board[row][col] != 0) {
-                    fields[row][col].setText(String.valueOf(board[row][col]));
-                    fields[row][col].setEditable(false);
-                    fields[row][col].setBackground(Color.CYAN);
-                }
-                gridPanel.add(fields[row][col]);
+    // Pushes one edited cell into the model (O(1) count update) and recolours the cells it can affect
+    private void cellEdited(int row, int col) {
+        if (busy) {
+            return;
+        }
+        int value = parseCell(grid.getText(row, col));
+        boolean bad = value < 0;
+        if (bad != badInput[row][col]) {
+            badInput[row][col] = bad;
+            badInputs += bad ? 1 : -1;
+        }
+        int before = sudoku.getCell(row, col);
+        sudoku.setBoardCell(row, col, bad ? 0 : value);
+        if (sudoku.getCell(row, col) != before) {
+            history.record(sudoku);
+        }
+        paintAround(row, col);
+    }
+
+    // 0 for an empty cell, -1 for anything that is not a number from 0 to size
+    private int parseCell(String text) {
+        text = text.trim();
+        if (text.isEmpty()) {
+            return 0;
+        }
+        try {
+            int value = Integer.parseInt(text);
+            return value >= 0 && value <= size ? value : -1;
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    // Recolours the cells whose conflict state an edit at (row, col) can change
+    private void paintAround(int row, int col) {
+        for (int i = 0; i < size; i++) {
+            paintCell(row, i);
+            paintCell(i, col);
+        }
+        int boxRows = sudoku.getBoxRows();
+        int boxCols = sudoku.getBoxCols();
+        int boxRowStart = (row / boxRows) * boxRows;
+        int boxColStart = (col / boxCols) * boxCols;
+        for (int i = 0; i < boxRows; i++) {
+            for (int j = 0; j < boxCols; j++) {
+                paintCell(boxRowStart + i, boxColStart + j);
             }
         }
-        return gridPanel;
+    }
+
+    private void paintCell(int row, int col) {
+        if (badInput[row][col] || sudoku.isConflict(row, col)) {
+            grid.setCellColor(row, col, Color.RED);
+        } else if (sudoku.isGiven(row, col)) {
+            grid.setCellColor(row, col, Color.CYAN);
+        } else {
+            grid.setCellColor(row, col, Color.WHITE);
+        }
     }
 
     private JPanel buildButtonPanel() {
@@ -89,79 +172,244 @@ public class SudokuGUI extends JFrame {
         solveButton.addActionListener(new SolveActionListener());
         buttonPanel.add(solveButton);
 
+        JButton undoButton = new JButton("Undo");
+        undoButton.addActionListener(e -> undo());
+        buttonPanel.add(undoButton);
+
+        JButton redoButton = new JButton("Redo");
+        redoButton.addActionListener(e -> redo());
+        buttonPanel.add(redoButton);
+
         JButton newGameButton = new JButton("New Game");
         newGameButton.addActionListener(new NewGameActionListener());
         buttonPanel.add(newGameButton);
 
         buttonPanel.add(difficultySelector);
+        buttonPanel.add(engineSelector);
         return buttonPanel;
     }
 
+    // Ctrl+Z and Ctrl+Y (or Ctrl+Shift+Z) anywhere in the window
+    private void bindUndoKeys() {
+        InputMap keys = getRootPane().getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW);
+        int menuKey = Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx();
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, menuKey), "undo");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Y, menuKey), "redo");
+        keys.put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, menuKey | InputEvent.SHIFT_DOWN_MASK), "redo");
+        getRootPane().getActionMap().put("undo", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                undo();
+            }
+        });
+        getRootPane().getActionMap().put("redo", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                redo();
+            }
+        });
+    }
+
+    private void undo() {
+        if (!busy && history.undo(sudoku)) {
+            showBoardState();
+        }
+    }
+
+    private void redo() {
+        if (!busy && history.redo(sudoku)) {
+            showBoardState();
+        }
+    }
+
+    // Brings the grid text in line with the model after an undo or redo. Cells whose text
+    // already means the restored value are left alone, so stray non-numeric text survives.
+    private void showBoardState() {
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                if (sudoku.isGiven(row, col)) {
+                    continue;
+                }
+                int value = sudoku.getCell(row, col);
+                int shown = parseCell(grid.getText(row, col));
+                if (shown != value && !(shown < 0 && value == 0)) {
+                    grid.setText(row, col, value == 0 ? "" : String.valueOf(value));
+                    if (badInput[row][col]) {
+                        badInput[row][col] = false;
+                        badInputs--;
+                    }
+                }
+            }
+        }
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                paintCell(row, col);
+            }
+        }
+    }
+
     private void openBankingSystem() {
         if (bank == null) {
+            long start = System.nanoTime();
+            bank = new BankingSystemGUI();
+            trackBank(bank);
+            logTiming(String.format("banking window built in %.1f ms", (System.nanoTime() - start) / 1e6));
+        }
+        BankingSystemGUI shown = bank;
+        SwingUtilities.invokeLater(() -> shown.setVisible(true));
+    }
+
+    // Closing the banking window closes its journal for good, so the next unlock builds a new one.
+    // Reinitializing keeps the window but changes the password and its cell.
+    private void trackBank(BankingSystemGUI window) {
+        window.setCredentialsListener(this::useCredentials);
+        window.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                if (bank == window) {
+                    bank = null;
+                }
+            }
+        });
+    }
+
+    private void loadCredentials() {
+        Thread loader = new Thread(() -> {
+            long start = System.nanoTime();
+            BankCredentials loaded;
+            try {
+                loaded = BankCredentials.load(new File("."));
+            } catch (IOException ex) {
+                loaded = null;
+            }
+            logTiming(String.format("credentials loaded in %.1f ms", (System.nanoTime() - start) / 1e6));
+            BankCredentials result = loaded;
+            SwingUtilities.invokeLater(() -> credentialsLoaded(result));
+        }, "bank-credentials");
+        loader.setDaemon(true);
+        loader.start();
+    }
+
+    private void credentialsLoaded(BankCredentials loaded) {
+        if (loaded == null) {
+            // First run, or unreadable data: the banking window runs its setup prompts now
             bank = new BankingSystemGUI();
+            trackBank(bank);
+            loaded = bank.getCredentials();
+        }
+        useCredentials(loaded);
+    }
+
+    private void useCredentials(BankCredentials credentials) {
+        password = credentials.getPassword();
+        passwordRow = credentials.getPasswordRow();
+        passwordCol = credentials.getPasswordCol();
+    }
+
+    // Startup numbers, printed with -Dsudoku.startupTiming=true
+    private static void logTiming(String message) {
+        if (Boolean.getBoolean("sudoku.startupTiming")) {
+            System.out.println("[startup] " + message);
+        }
+    }
+
+    private SudokuSolver selectedEngine() {
+        if ("Parallel".equals(engineSelector.getSelectedItem())) {
+            if (parallelSolver == null) {
+                parallelSolver = new ParallelSolver();
+            }
+            return parallelSolver;
+        }
+        return Sudoku.defaultSolver(size);
+    }
+
+    // Returns the result of a finished background task, or null after telling the user why there is none
+    private <T> T finishTask(SolverService.Task<T> task, String what) {
+        busy = false;
+        progress.close();
+        if (task.isCancelled()) {
+            String reason = task.isTimedOut() ? " timed out after " + timeBudgetMillis / 1000 + " s." : " cancelled.";
+            JOptionPane.showMessageDialog(this, what + reason);
+            return null;
+        }
+        try {
+            return task.get();
+        } catch (InterruptedException | ExecutionException ex) {
+            JOptionPane.showMessageDialog(this, what + " failed: " + ex.getCause());
+            return null;
+        }
+    }
+
+    // Shows the nodes explored by a running task once it takes longer than a blink, with a Cancel button
+    private class ProgressDialog extends JDialog {
+        private final Timer refresh;
+        private final Timer delayedShow;
+        private boolean closed;
+
+        ProgressDialog(String title, LongSupplier nodes, Future<?> task) {
+            super(SudokuGUI.this, title, true);
+            JLabel label = new JLabel("Nodes explored: 0");
+            label.setBorder(BorderFactory.createEmptyBorder(10, 20, 10, 20));
+            JButton cancelButton = new JButton("Cancel");
+            cancelButton.addActionListener(e -> task.cancel(true));
+            setLayout(new BorderLayout());
+            add(label, BorderLayout.CENTER);
+            add(cancelButton, BorderLayout.SOUTH);
+            setDefaultCloseOperation(JDialog.DO_NOTHING_ON_CLOSE);
+            pack();
+            setLocationRelativeTo(SudokuGUI.this);
+
+            refresh = new Timer(100, e -> label.setText("Nodes explored: " + nodes.getAsLong()));
+            delayedShow = new Timer(250, e -> {
+                if (!closed) {
+                    refresh.start();
+                    setVisible(true);
+                }
+            });
+            delayedShow.setRepeats(false);
+            delayedShow.start();
+        }
+
+        void close() {
+            closed = true;
+            delayedShow.stop();
+            refresh.stop();
+            dispose();
         }
-        SwingUtilities.invokeLater(() -> bank.setVisible(true));
     }
 
     private class ValidateActionListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
-            boolean isGridValid = true;
-            StringBuilder enteredCode = new StringBuilder();
-            boolean emptyCells = false;
-
-            for (int row = 0; row < size; row++) {
-                for (int col = 0; col < size; col++) {
-                    String text = fields[row][col].getText();
-                    if (!text.isEmpty()) {
-                        if (row == passwordRow && col == passwordCol) {
-                            enteredCode.append(text);
-                        }
-
-                        try {
-                            int num = Integer.parseInt(text);
-                            sudoku.setBoardCell(row, col, num);
-                        } catch (NumberFormatException ex) {
-                            fields[row][col].setBackground(Color.RED);
-                            isGridValid = false;
-                        }
-                    } else {
-                        sudoku.setBoardCell(row, col, 0);
-                        emptyCells = true;
-                    }
-                }
+            if (busy) {
+                return;
             }
-
-            if ("Hard".equals(difficultySelector.getSelectedItem()) && enteredCode.toString().equals(password)) {
+            String enteredCode = passwordRow < size && passwordCol < size ? grid.getText(passwordRow, passwordCol) : "";
+            if ("Hard".equals(difficultySelector.getSelectedItem()) && enteredCode.equals(password)) {
                 JOptionPane.showMessageDialog(SudokuGUI.this, "Access granted to Banking System!");
                 openBankingSystem();
                 return;
             }
 
+            long start = Metrics.ENABLED ? System.nanoTime() : 0;
+            // The model already knows every conflict; only the colours need refreshing
             for (int row = 0; row < size; row++) {
                 for (int col = 0; col < size; col++) {
-                    String text = fields[row][col].getText();
-                    if (!text.isEmpty()) {
-                        try {
-                            int num = Integer.parseInt(text);
-                            sudoku.setBoardCell(row, col, 0);
-                            if (!sudoku.isValid(row, col, num)) {
-                                fields[row][col].setBackground(Color.RED);
-                                isGridValid = false;
-                            } else {
-                                fields[row][col].setBackground(Color.GREEN);
-                            }
-                            sudoku.setBoardCell(row, col, num);
-                        } catch (NumberFormatException ex) {
-                            fields[row][col].setBackground(Color.RED);
-                        }
+                    if (grid.getText(row, col).isEmpty()) {
+                        grid.setCellColor(row, col, Color.WHITE);
+                    } else if (badInput[row][col] || sudoku.isConflict(row, col)) {
+                        grid.setCellColor(row, col, Color.RED);
                     } else {
-                        fields[row][col].setBackground(Color.WHITE);
+                        grid.setCellColor(row, col, Color.GREEN);
                     }
                 }
             }
 
+            boolean isGridValid = sudoku.getConflictCount() == 0 && badInputs == 0;
+            boolean emptyCells = sudoku.getFilledCount() < size * size;
+            if (Metrics.ENABLED) {
+                Metrics.validation.record(System.nanoTime() - start);
+            }
             if (isGridValid) {
                 if (emptyCells) {
                     JOptionPane.showMessageDialog(SudokuGUI.this, "The Sudoku grid is valid but there are empty cells!");
@@ -177,51 +425,98 @@ public class SudokuGUI extends JFrame {
     private class SolveActionListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
-            sudoku.resetToFixedValues();
-            if (sudoku.solve()) {
-                updateGridWithSolution();
-            } else {
-                JOptionPane.showMessageDialog(SudokuGUI.this, "No solution exists!");
+            if (busy) {
+                return;
             }
+            busy = true;
+            SudokuSolver solver = selectedEngine();
+            // The worker solves a copy of the givens; the board and the grid keep the player's
+            // entries until a solution is actually there to replace them
+            Sudoku work = new Sudoku(sudoku.getGivenBoard());
+            work.setSolver(solver);
+            SolverService.Task<Boolean> task = solverService.solve(work, timeBudgetMillis, done -> {
+                Boolean solved = finishTask(done, "Solving");
+                if (solved == null) {
+                    return;
+                }
+                if (solved) {
+                    for (int i = 0; i < size * size; i++) {
+                        sudoku.setCell(i, work.getCell(i));
+                    }
+                    updateGridWithSolution();
+                } else {
+                    JOptionPane.showMessageDialog(SudokuGUI.this, "No solution exists!");
+                }
+            });
+            progress = new ProgressDialog("Solving...", solver::getNodeCount, task);
         }
 
         private void updateGridWithSolution() {
-            int[][] solvedBoard = sudoku.getBoard();
-
             for (int row = 0; row < size; row++) {
                 for (int col = 0; col < size; col++) {
-                    if (!sudoku.fixed[row][col]) {
-                        fields[row][col].setText(String.valueOf(solvedBoard[row][col]));
-                        fields[row][col].setBackground(Color.LIGHT_GRAY);
+                    if (!sudoku.isGiven(row, col)) {
+                        grid.setText(row, col, String.valueOf(sudoku.getCell(row, col)));
+                        grid.setCellColor(row, col, Color.LIGHT_GRAY);
                     }
-                    fields[row][col].setEditable(false);
                 }
             }
+            grid.setEditable(false);
+            badInput = new boolean[size][size];
+            badInputs = 0;
+            // The solved grid is read-only, so there is nothing left to undo
+            history = new BoardHistory(sudoku, BoardHistory.DEFAULT_CAPACITY);
         }
     }
 
     private class NewGameActionListener implements ActionListener {
         @Override
         public void actionPerformed(ActionEvent e) {
-            initializeSudoku();
-            getContentPane().removeAll();
-
-            JPanel gridPanel = buildSudokuGrid();
-            JPanel buttonPanel = buildButtonPanel();
-
-            add(gridPanel, BorderLayout.CENTER);
-            add(buttonPanel, BorderLayout.SOUTH);
+            if (busy) {
+                return;
+            }
+            int newSize = selectedSize();
+            Sudoku pooled = puzzlePool.take(newSize);
+            if (pooled != null) {
+                showNewGame(newSize, pooled);
+                return;
+            }
+            // Pool ran dry: generate this one in the background as before
+            busy = true;
+            long startNodes = generator.getNodeCount();
+            SolverService.Task<Sudoku> task = solverService.generate(generator, newSize, timeBudgetMillis, done -> {
+                Sudoku generated = finishTask(done, "Puzzle generation");
+                if (generated != null) {
+                    showNewGame(newSize, generated);
+                }
+            });
+            progress = new ProgressDialog("Generating puzzle...", () -> generator.getNodeCount() - startNodes, task);
+        }
 
-            revalidate();
-            repaint();
+        private void showNewGame(int newSize, Sudoku generated) {
+            size = newSize;
+            sudoku = generated;
+            resetFields();
+            // Same component, new contents; nothing is laid out again
+            grid.setPuzzle(sudoku);
         }
     }
     public static void main(String[] args) {
-    	SwingUtilities.invokeLater(() -> {
-    		BankingSystemGUI bank = new BankingSystemGUI();
-    		SudokuGUI sudoku = new SudokuGUI(bank);
-    		sudoku.setVisible(true);
-    		bank.setVisible(false);
-    	});
+        long start = System.nanoTime();
+        SwingUtilities.invokeLater(() -> {
+            SudokuGUI sudoku = new SudokuGUI();
+            sudoku.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowOpened(WindowEvent e) {
+                    firstFrameMillis = (System.nanoTime() - start) / 1e6;
+                    logTiming(String.format("first frame %.1f ms after main", firstFrameMillis));
+                }
+            });
+            sudoku.setVisible(true);
+        });
+    }
+
+    // Time from main() to the Sudoku window opening, or 0 before that
+    public static double getFirstFrameMillis() {
+        return firstFrameMillis;
     }
 }
\ No newline at end of file
@@ -0,0 +1,382 @@
+package sudoku;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+
+// The whole Sudoku board as one component. It paints every cell itself (background colour, text,
+// thin cell lines and thick box lines, the selected cell) and takes mouse clicks and typing
+// directly, instead of holding one JTextField per cell. Changes repaint only the cells they
+// touch, and a new game reuses the component. Each editable cell holds free text, as the text
+// fields did, so the banking password can still be typed into its cell; the listener is told
+// after every change the user makes and decides what the text means.
+public class SudokuGrid extends JComponent {
+    private static final Color LINE = Color.GRAY;
+    private static final Color BOX_LINE = Color.BLACK;
+    private static final Color SELECTION = new Color(0, 90, 200);
+
+    // Called on the EDT after the user changes the text of a cell
+    public interface CellListener {
+        void cellEdited(int row, int col);
+    }
+
+    private final CellListener listener;
+    private Sudoku sudoku;
+    private int size;
+    private String[] texts = new String[0];
+    private Color[] colors = new Color[0];
+    private boolean editable;
+    private int selected = -1;
+
+    private Font font;
+    private FontMetrics metrics;
+    private int fontCellSize;
+
+    private long paints;
+    private long paintNanos;
+    private long maxPaintNanos;
+    private long rebuildStart;
+    private long lastRebuildNanos;
+
+    public SudokuGrid(CellListener listener) {
+        this.listener = listener;
+        setFocusable(true);
+        setOpaque(true);
+        setBackground(Color.WHITE);
+        setPreferredSize(new Dimension(600, 600));
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                requestFocusInWindow();
+                int cell = cellAt(e.getX(), e.getY());
+                if (cell >= 0) {
+                    select(cell);
+                }
+            }
+        });
+        addKeyListener(new KeyAdapter() {
+            @Override
+            public void keyPressed(KeyEvent e) {
+                keyPressedInGrid(e);
+            }
+
+            @Override
+            public void keyTyped(KeyEvent e) {
+                char c = e.getKeyChar();
+                if (!Character.isISOControl(c) && c != KeyEvent.CHAR_UNDEFINED && (e.getModifiersEx() & KeyEvent.CTRL_DOWN_MASK) == 0) {
+                    String text = selected >= 0 && texts[selected] != null ? texts[selected] : "";
+                    edit(text + c);
+                }
+            }
+        });
+    }
+
+    // Shows a new puzzle: givens in cyan, everything else empty and white. Arrays are reused while
+    // the size stays the same.
+    public void setPuzzle(Sudoku sudoku) {
+        rebuildStart = System.nanoTime();
+        this.sudoku = sudoku;
+        size = sudoku.getSize();
+        if (texts.length != size * size) {
+            texts = new String[size * size];
+            colors = new Color[size * size];
+        }
+        for (int i = 0; i < texts.length; i++) {
+            int row = i / size;
+            int col = i % size;
+            boolean given = sudoku.isGiven(row, col);
+            texts[i] = given ? String.valueOf(sudoku.getCell(row, col)) : null;
+            colors[i] = given ? Color.CYAN : Color.WHITE;
+        }
+        editable = true;
+        selected = -1;
+        repaint();
+    }
+
+    public String getText(int row, int col) {
+        String text = texts[row * size + col];
+        return text == null ? "" : text;
+    }
+
+    // Sets the text without telling the listener
+    public void setText(int row, int col, String text) {
+        int i = row * size + col;
+        String old = texts[i];
+        texts[i] = text.isEmpty() ? null : text;
+        if (old == null ? texts[i] != null : !old.equals(texts[i])) {
+            repaintCell(i);
+        }
+    }
+
+    public void setCellColor(int row, int col, Color color) {
+        int i = row * size + col;
+        if (!color.equals(colors[i])) {
+            colors[i] = color;
+            repaintCell(i);
+        }
+    }
+
+    // When false every cell is read-only, e.g. once the puzzle has been solved
+    public void setEditable(boolean editable) {
+        this.editable = editable;
+    }
+
+    public long getPaintCount() {
+        return paints;
+    }
+
+    public double getAveragePaintMillis() {
+        return paints == 0 ? 0 : paintNanos / 1e6 / paints;
+    }
+
+    public double getMaxPaintMillis() {
+        return maxPaintNanos / 1e6;
+    }
+
+    // From setPuzzle to the end of the first paint that followed it
+    public double getLastRebuildMillis() {
+        return lastRebuildNanos / 1e6;
+    }
+
+    private void keyPressedInGrid(KeyEvent e) {
+        if (size == 0) {
+            return;
+        }
+        int row = selected < 0 ? 0 : selected / size;
+        int col = selected < 0 ? 0 : selected % size;
+        int step = selected < 0 ? 0 : 1; // the first arrow press just selects the top-left cell
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_UP:
+                select(Math.max(0, row - step) * size + col);
+                break;
+            case KeyEvent.VK_DOWN:
+                select(Math.min(size - 1, row + step) * size + col);
+                break;
+            case KeyEvent.VK_LEFT:
+                select(row * size + Math.max(0, col - step));
+                break;
+            case KeyEvent.VK_RIGHT:
+                select(row * size + Math.min(size - 1, col + step));
+                break;
+            case KeyEvent.VK_BACK_SPACE:
+                if (selected >= 0 && texts[selected] != null) {
+                    edit(texts[selected].substring(0, texts[selected].length() - 1));
+                }
+                break;
+            case KeyEvent.VK_DELETE:
+                edit("");
+                break;
+            default:
+                return;
+        }
+        e.consume();
+    }
+
+    private void edit(String text) {
+        if (!editable || selected < 0 || sudoku.isGiven(selected / size, selected % size)) {
+            return;
+        }
+        int row = selected / size;
+        int col = selected % size;
+        String old = getText(row, col);
+        if (!old.equals(text)) {
+            setText(row, col, text);
+            listener.cellEdited(row, col);
+        }
+    }
+
+    private void select(int cell) {
+        if (cell == selected) {
+            return;
+        }
+        if (selected >= 0) {
+            repaintCell(selected);
+        }
+        selected = cell;
+        repaintCell(cell);
+    }
+
+    private int cellSize() {
+        return size == 0 ? 1 : Math.max(1, Math.min(getWidth(), getHeight()) / size);
+    }
+
+    private int originX() {
+        return (getWidth() - cellSize() * size) / 2;
+    }
+
+    private int originY() {
+        return (getHeight() - cellSize() * size) / 2;
+    }
+
+    private int cellAt(int x, int y) {
+        int cell = cellSize();
+        int col = Math.floorDiv(x - originX(), cell);
+        int row = Math.floorDiv(y - originY(), cell);
+        return row >= 0 && row < size && col >= 0 && col < size ? row * size + col : -1;
+    }
+
+    // The cell plus the box line that may run along any of its edges
+    private void repaintCell(int i) {
+        int cell = cellSize();
+        repaint(originX() + i % size * cell - 1, originY() + i / size * cell - 1, cell + 3, cell + 3);
+    }
+
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        long start = System.nanoTime();
+        Graphics2D g = (Graphics2D) graphics;
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        if (size == 0) {
+            return;
+        }
+        int cell = cellSize();
+        int x0 = originX();
+        int y0 = originY();
+        if (cell != fontCellSize) {
+            font = new Font("SansSerif", Font.BOLD, Math.max(9, cell * 2 / 5));
+            metrics = g.getFontMetrics(font);
+            fontCellSize = cell;
+        }
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setFont(font);
+
+        // Only the cells that meet the clip
+        int firstRow = Math.max(0, Math.floorDiv(clip.y - y0, cell));
+        int lastRow = Math.min(size - 1, Math.floorDiv(clip.y + clip.height - y0, cell));
+        int firstCol = Math.max(0, Math.floorDiv(clip.x - x0, cell));
+        int lastCol = Math.min(size - 1, Math.floorDiv(clip.x + clip.width - x0, cell));
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int col = firstCol; col <= lastCol; col++) {
+                int i = row * size + col;
+                int x = x0 + col * cell;
+                int y = y0 + row * cell;
+                g.setColor(colors[i]);
+                g.fillRect(x, y, cell, cell);
+                String text = texts[i];
+                if (text != null) {
+                    g.setColor(Color.BLACK);
+                    int width = metrics.stringWidth(text);
+                    int textY = y + (cell - metrics.getHeight()) / 2 + metrics.getAscent();
+                    if (width <= cell) {
+                        g.drawString(text, x + (cell - width) / 2, textY);
+                    } else {
+                        Graphics clipped = g.create(x, y, cell, cell);
+                        clipped.drawString(text, 1, textY - y);
+                        clipped.dispose();
+                    }
+                }
+            }
+        }
+
+        int boxRows = sudoku.getBoxRows();
+        int boxCols = sudoku.getBoxCols();
+        int top = y0 + firstRow * cell;
+        int bottom = y0 + (lastRow + 1) * cell;
+        int left = x0 + firstCol * cell;
+        int right = x0 + (lastCol + 1) * cell;
+        for (int row = firstRow; row <= lastRow + 1; row++) {
+            boolean box = row % boxRows == 0;
+            g.setColor(box ? BOX_LINE : LINE);
+            g.fillRect(left - 1, y0 + row * cell - (box ? 1 : 0), right - left + 2, box ? 2 : 1);
+        }
+        for (int col = firstCol; col <= lastCol + 1; col++) {
+            boolean box = col % boxCols == 0;
+            g.setColor(box ? BOX_LINE : LINE);
+            g.fillRect(x0 + col * cell - (box ? 1 : 0), top - 1, box ? 2 : 1, bottom - top + 2);
+        }
+        if (selected >= 0) {
+            g.setColor(SELECTION);
+            g.setStroke(new BasicStroke(2));
+            g.drawRect(x0 + selected % size * cell + 2, y0 + selected / size * cell + 2, cell - 4, cell - 4);
+        }
+
+        long nanos = System.nanoTime() - start;
+        paints++;
+        paintNanos += nanos;
+        maxPaintNanos = Math.max(maxPaintNanos, nanos);
+        if (Metrics.ENABLED) {
+            Metrics.gridPaint.record(nanos);
+        }
+        if (rebuildStart != 0) {
+            lastRebuildNanos = System.nanoTime() - rebuildStart;
+            rebuildStart = 0;
+            if (Metrics.ENABLED) {
+                Metrics.gridRebuild.record(lastRebuildNanos);
+            }
+        }
+    }
+
+    // Compares a new game and a full repaint against the old grid of JTextFields, off screen.
+    // Usage: java -Djava.awt.headless=true sudoku.SudokuGrid [repeats]
+    public static void main(String[] args) {
+        int repeats = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        PuzzleGenerator generator = new PuzzleGenerator();
+        BufferedImage image = new BufferedImage(600, 600, BufferedImage.TYPE_INT_RGB);
+        for (int size : new int[]{9, 16, 25}) {
+            Sudoku[] puzzles = new Sudoku[repeats];
+            for (int i = 0; i < repeats; i++) {
+                puzzles[i] = generator.generate(size);
+            }
+
+            // Before: size * size text fields, each with its own Font, laid out and painted
+            long fieldNanos = 0;
+            for (int r = 0; r < repeats; r++) {
+                long start = System.nanoTime();
+                JPanel panel = new JPanel(new GridLayout(size, size));
+                for (int i = 0; i < size * size; i++) {
+                    JTextField field = new JTextField();
+                    field.setHorizontalAlignment(JTextField.CENTER);
+                    field.setFont(new Font("SansSerif", Font.BOLD, size > 9 ? 12 : 18));
+                    int value = puzzles[r].getCell(i);
+                    if (value != 0) {
+                        field.setText(String.valueOf(value));
+                        field.setEditable(false);
+                        field.setBackground(Color.CYAN);
+                    }
+                    panel.add(field);
+                }
+                panel.setSize(600, 600);
+                panel.doLayout();
+                Graphics2D g = image.createGraphics();
+                panel.paint(g);
+                g.dispose();
+                fieldNanos += System.nanoTime() - start;
+            }
+
+            // After: one component, reused
+            SudokuGrid grid = new SudokuGrid((row, col) -> {
+            });
+            grid.setSize(600, 600);
+            long gridNanos = 0;
+            long cellNanos = 0;
+            for (int r = 0; r < repeats; r++) {
+                long start = System.nanoTime();
+                grid.setPuzzle(puzzles[r]);
+                Graphics2D g = image.createGraphics();
+                grid.paint(g);
+                g.dispose();
+                gridNanos += System.nanoTime() - start;
+
+                // What an edit costs: one dirty cell
+                int cell = grid.cellSize();
+                start = System.nanoTime();
+                g = image.createGraphics();
+                g.setClip(grid.originX() - 1, grid.originY() - 1, cell + 3, cell + 3);
+                grid.paint(g);
+                g.dispose();
+                cellNanos += System.nanoTime() - start;
+            }
+            System.out.printf("%2dx%-2d text fields: new game %.2f ms | grid: new game %.2f ms, one cell %.3f ms%n",
+                    size, size, fieldNanos / 1e6 / repeats, gridNanos / 1e6 / repeats, cellNanos / 1e6 / repeats);
+        }
+    }
+}
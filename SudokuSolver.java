@@ -0,0 +1,20 @@
+package sudoku;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Strategy for filling in the empty cells of a Sudoku board in place.
+// Implementations poll the thread's interrupt flag (and the stop flag, if one is set) during
+// search and throw java.util.concurrent.CancellationException once either is raised.
+public interface SudokuSolver {
+    // Fills the board with a solution and returns true, or leaves it unchanged and returns false.
+    boolean solve(Sudoku sudoku);
+
+    // Counts the solutions of the board, stopping as soon as limit is reached. The board is left unchanged.
+    int countSolutions(Sudoku sudoku, int limit);
+
+    // Search nodes visited so far by the current or last call; safe to read from another thread.
+    long getNodeCount();
+
+    // Shared flag that aborts the search when set, for callers that cannot interrupt the solving thread.
+    void setStopFlag(AtomicBoolean stop);
+}
@@ -0,0 +1,90 @@
+package sudoku;
+
+// One banking operation as stored in the journal. Amounts are whole cents.
+public class Transaction {
+    public static final char INIT = 'I';      // sets the account's balance outright
+    public static final char DEPOSIT = 'D';
+    public static final char WITHDRAW = 'W';
+    public static final char TRANSFER = 'T';  // account is the source, the other account the target
+    public static final char RESET = 'R';     // both balances back to zero
+
+    public static final int SAVINGS = 0;
+    public static final int SPENDINGS = 1;
+    public static final String[] ACCOUNT_NAMES = {"Savings", "Spendings"};
+
+    final long timestamp;
+    final char op;
+    final int account;
+    final long cents;
+
+    public Transaction(long timestamp, char op, int account, long cents) {
+        this.timestamp = timestamp;
+        this.op = op;
+        this.account = account;
+        this.cents = cents;
+    }
+
+    public static int accountId(String name) {
+        return "Savings".equals(name) ? SAVINGS : SPENDINGS;
+    }
+
+    public static long toCents(double amount) {
+        return Math.round(amount * 100);
+    }
+
+    // True if adding cents to balance stays within a long, i.e. AccountEngine would accept it
+    public static boolean fits(long balance, long cents) {
+        return balance <= Long.MAX_VALUE - cents;
+    }
+
+    // Applies this operation to balances indexed by account id. A deposit or transfer that would
+    // overflow the target changes nothing, as in AccountEngine; older versions could journal one
+    // that the banking window itself never applied.
+    public void apply(long[] balances) {
+        switch (op) {
+            case INIT:
+                balances[account] = cents;
+                break;
+            case DEPOSIT:
+                if (fits(balances[account], cents)) {
+                    balances[account] += cents;
+                }
+                break;
+            case WITHDRAW:
+                balances[account] -= cents;
+                break;
+            case TRANSFER:
+                if (fits(balances[1 - account], cents)) {
+                    balances[account] -= cents;
+                    balances[1 - account] += cents;
+                }
+                break;
+            case RESET:
+                balances[SAVINGS] = 0;
+                balances[SPENDINGS] = 0;
+                break;
+            default:
+                throw new IllegalStateException("Unknown operation " + op);
+        }
+    }
+
+    // The history line shown to the user, in the wording the banking window has always used
+    public String describe() {
+        double amount = cents / 100.0;
+        String name = ACCOUNT_NAMES[account];
+        switch (op) {
+            case INIT:
+                return "Initialized " + name + ": $" + amount;
+            case DEPOSIT:
+                return "Added $" + amount + " to " + name;
+            case WITHDRAW:
+                return "Withdrew $" + amount + " from " + name;
+            case TRANSFER:
+                return "Transferred $" + amount + " from " + name + " to " + ACCOUNT_NAMES[1 - account];
+            case RESET:
+                return "Balances reset to $0";
+            default:
+                return "Unknown operation " + op;
+        }
+    }
+}
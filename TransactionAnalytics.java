@@ -0,0 +1,421 @@
+package sudoku;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+// Monthly statements over the transaction history: flows per account, opening and closing
+// balances, the lowest balance reached and how often a balance dropped below the low-balance
+// threshold. compute() scans a ledger once; large ledgers are cut into chunks that are scanned in
+// parallel. Running balances depend on everything before them, so a quick first pass over the
+// same chunks works out each chunk's starting balances before the real one. After that, add()
+// keeps the statements current one entry at a time: months before the latest one are closed and
+// never recomputed, only the open month changes.
+//
+// Entries belong to the month of their timestamp, except that an entry older than one already
+// seen (a clock change) counts in the current month, so closed months stay closed.
+public class TransactionAnalytics {
+    public static final int PARALLEL_THRESHOLD = 1 << 17;
+    static final int CHUNK_SIZE = 1 << 16;
+    private static final int ACCOUNTS = Transaction.ACCOUNT_NAMES.length;
+
+    private final long thresholdCents;
+    private final ZoneId zone;
+    private final TreeMap<Integer, Statement> closed = new TreeMap<>();
+    private final Scanner scanner;
+    private int entries;
+    private long computeNanos;
+
+    // One month of one history
+    public static class Statement {
+        final int month; // year * 12 + month - 1
+        final long[] opening = new long[ACCOUNTS];
+        final long[] closing = new long[ACCOUNTS];
+        final long[] minimum = new long[ACCOUNTS];
+        final long[] deposits = new long[ACCOUNTS];
+        final long[] withdrawals = new long[ACCOUNTS];
+        final long[] transfersOut = new long[ACCOUNTS];
+        final long[] transfersIn = new long[ACCOUNTS];
+        final int[] lowBalanceIncidents = new int[ACCOUNTS];
+        int entries;
+
+        Statement(int month, long[] balances) {
+            this.month = month;
+            for (int a = 0; a < ACCOUNTS; a++) {
+                opening[a] = balances[a];
+                closing[a] = balances[a];
+                minimum[a] = balances[a];
+            }
+        }
+
+        public YearMonth getMonth() {
+            return YearMonth.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1);
+        }
+
+        public int getEntries() {
+            return entries;
+        }
+
+        public long getOpening(int account) {
+            return opening[account];
+        }
+
+        public long getClosing(int account) {
+            return closing[account];
+        }
+
+        public long getMinimum(int account) {
+            return minimum[account];
+        }
+
+        public long getDeposits(int account) {
+            return deposits[account];
+        }
+
+        public long getWithdrawals(int account) {
+            return withdrawals[account];
+        }
+
+        public long getTransfersOut(int account) {
+            return transfersOut[account];
+        }
+
+        public long getTransfersIn(int account) {
+            return transfersIn[account];
+        }
+
+        // Times the balance went from at or above the threshold to below it
+        public int getLowBalanceIncidents(int account) {
+            return lowBalanceIncidents[account];
+        }
+
+        // Closing minus opening
+        public long getChange(int account) {
+            return closing[account] - opening[account];
+        }
+
+        // Appends the rest of the same month, scanned from where this part ended
+        void merge(Statement later) {
+            entries += later.entries;
+            for (int a = 0; a < ACCOUNTS; a++) {
+                closing[a] = later.closing[a];
+                minimum[a] = Math.min(minimum[a], later.minimum[a]);
+                deposits[a] += later.deposits[a];
+                withdrawals[a] += later.withdrawals[a];
+                transfersOut[a] += later.transfersOut[a];
+                transfersIn[a] += later.transfersIn[a];
+                lowBalanceIncidents[a] += later.lowBalanceIncidents[a];
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(getMonth() + ": " + entries + " entries");
+            for (int a = 0; a < ACCOUNTS; a++) {
+                text.append(String.format("; %s %d -> %d (min %d, +%d -%d, out %d in %d, %d low)",
+                        Transaction.ACCOUNT_NAMES[a], opening[a], closing[a], minimum[a], deposits[a],
+                        withdrawals[a], transfersOut[a], transfersIn[a], lowBalanceIncidents[a]));
+            }
+            return text.toString();
+        }
+    }
+
+    private TransactionAnalytics(long thresholdCents, ZoneId zone, Scanner scanner) {
+        this.thresholdCents = thresholdCents;
+        this.zone = zone;
+        this.scanner = scanner;
+    }
+
+    // Statements for entries [0, ledger.size()). The ledger must not change while this runs;
+    // TransactionLedger.snapshot() gives a copy that is safe to hand to another thread.
+    public static TransactionAnalytics compute(TransactionLedger ledger, long thresholdCents, ZoneId zone) {
+        return compute(ledger, thresholdCents, zone, ledger.size() >= PARALLEL_THRESHOLD ? CHUNK_SIZE : Integer.MAX_VALUE);
+    }
+
+    static TransactionAnalytics compute(TransactionLedger ledger, long thresholdCents, ZoneId zone, int chunkSize) {
+        long start = System.nanoTime();
+        int size = ledger.size();
+        int chunks = Math.max(1, (int) ((size + (long) chunkSize - 1) / chunkSize));
+
+        // Pass one: what each chunk does to the balances, and its latest timestamp
+        ChunkEffect[] effects = IntStream.range(0, chunks).parallel()
+                .mapToObj(c -> ChunkEffect.of(ledger, from(c, chunkSize), to(c, chunkSize, size)))
+                .toArray(ChunkEffect[]::new);
+        long[][] startBalances = new long[chunks][];
+        long[] startFloors = new long[chunks];
+        long[] balances = new long[ACCOUNTS];
+        long floor = Long.MIN_VALUE;
+        for (int c = 0; c < chunks; c++) {
+            startBalances[c] = balances.clone();
+            startFloors[c] = floor;
+            effects[c].apply(balances);
+            floor = Math.max(floor, effects[c].latest);
+        }
+
+        // Pass two: the statements, each chunk starting from its true balances
+        Scanner[] parts = IntStream.range(0, chunks).parallel()
+                .mapToObj(c -> {
+                    Scanner part = new Scanner(thresholdCents, zone, startBalances[c], startFloors[c]);
+                    part.scan(ledger, from(c, chunkSize), to(c, chunkSize, size));
+                    return part;
+                })
+                .toArray(Scanner[]::new);
+
+        List<Statement> statements = new ArrayList<>();
+        for (Scanner part : parts) {
+            for (Statement statement : part.statements()) {
+                Statement last = statements.isEmpty() ? null : statements.get(statements.size() - 1);
+                if (last != null && last.month == statement.month) {
+                    last.merge(statement);
+                } else {
+                    statements.add(statement);
+                }
+            }
+        }
+
+        Scanner tail = new Scanner(thresholdCents, zone, balances, floor);
+        TransactionAnalytics analytics = new TransactionAnalytics(thresholdCents, zone, tail);
+        if (!statements.isEmpty()) {
+            tail.current = statements.remove(statements.size() - 1);
+        }
+        for (Statement statement : statements) {
+            analytics.closed.put(statement.month, statement);
+        }
+        analytics.entries = size;
+        analytics.computeNanos = System.nanoTime() - start;
+        return analytics;
+    }
+
+    private static int from(int chunk, int chunkSize) {
+        return (int) Math.min(Integer.MAX_VALUE, (long) chunk * chunkSize);
+    }
+
+    private static int to(int chunk, int chunkSize, int size) {
+        return (int) Math.min(size, (long) (chunk + 1) * chunkSize);
+    }
+
+    // Folds in one more entry; O(1)
+    public void add(Transaction t) {
+        scanner.accept(t.timestamp, t.op, t.account, t.cents);
+        for (Statement finished : scanner.finished) {
+            closed.put(finished.month, finished);
+        }
+        scanner.finished.clear();
+        entries++;
+    }
+
+    // Oldest first; the last one is the open month
+    public List<Statement> getStatements() {
+        List<Statement> statements = new ArrayList<>(closed.values());
+        if (scanner.current != null) {
+            statements.add(scanner.current);
+        }
+        return statements;
+    }
+
+    public int getEntryCount() {
+        return entries;
+    }
+
+    public long getThresholdCents() {
+        return thresholdCents;
+    }
+
+    public double getComputeMillis() {
+        return computeNanos / 1e6;
+    }
+
+    public int getLowBalanceIncidents(int account) {
+        int total = 0;
+        for (Statement statement : getStatements()) {
+            total += statement.lowBalanceIncidents[account];
+        }
+        return total;
+    }
+
+    // Average saved (change in Savings) and spent (withdrawals from both accounts) per month over the
+    // last months statements, including the open one, and over the same number before those
+    public String getTrend(int months) {
+        List<Statement> statements = getStatements();
+        if (statements.isEmpty()) {
+            return "No transactions yet.";
+        }
+        int end = statements.size();
+        int recent = Math.max(0, end - months);
+        int earlier = Math.max(0, recent - months);
+        String text = String.format("Last %d months: saved %s, spent %s per month", end - recent,
+                dollars(averageSaved(statements, recent, end)), dollars(averageSpent(statements, recent, end)));
+        if (recent > earlier) {
+            text += String.format(" (the %d before: saved %s, spent %s)", recent - earlier,
+                    dollars(averageSaved(statements, earlier, recent)), dollars(averageSpent(statements, earlier, recent)));
+        }
+        return text;
+    }
+
+    private static long averageSaved(List<Statement> statements, int from, int to) {
+        long total = 0;
+        for (int i = from; i < to; i++) {
+            total += statements.get(i).getChange(Transaction.SAVINGS);
+        }
+        return total / (to - from);
+    }
+
+    private static long averageSpent(List<Statement> statements, int from, int to) {
+        long total = 0;
+        for (int i = from; i < to; i++) {
+            for (int a = 0; a < ACCOUNTS; a++) {
+                total += statements.get(i).withdrawals[a];
+            }
+        }
+        return total / (to - from);
+    }
+
+    static String dollars(long cents) {
+        return String.format("%s$%.2f", cents < 0 ? "-" : "", Math.abs(cents) / 100.0);
+    }
+
+    // What a run of entries does to each balance: either adds delta, or (after an INIT or RESET)
+    // sets it to value and then adds what followed
+    private static class ChunkEffect {
+        final boolean[] set = new boolean[ACCOUNTS];
+        final long[] delta = new long[ACCOUNTS];
+        long latest = Long.MIN_VALUE;
+
+        static ChunkEffect of(TransactionLedger ledger, int from, int to) {
+            ChunkEffect effect = new ChunkEffect();
+            for (int i = from; i < to; i++) {
+                int account = ledger.getAccount(i);
+                long cents = ledger.getCents(i);
+                effect.latest = Math.max(effect.latest, ledger.getTimestamp(i));
+                switch (ledger.getOp(i)) {
+                    case Transaction.INIT:
+                        effect.set[account] = true;
+                        effect.delta[account] = cents;
+                        break;
+                    case Transaction.DEPOSIT:
+                        effect.delta[account] += cents;
+                        break;
+                    case Transaction.WITHDRAW:
+                        effect.delta[account] -= cents;
+                        break;
+                    case Transaction.TRANSFER:
+                        effect.delta[account] -= cents;
+                        effect.delta[1 - account] += cents;
+                        break;
+                    default:
+                        for (int a = 0; a < ACCOUNTS; a++) {
+                            effect.set[a] = true;
+                            effect.delta[a] = 0;
+                        }
+                        break;
+                }
+            }
+            return effect;
+        }
+
+        void apply(long[] balances) {
+            for (int a = 0; a < ACCOUNTS; a++) {
+                balances[a] = set[a] ? delta[a] : balances[a] + delta[a];
+            }
+        }
+    }
+
+    // Walks entries in order, keeping running balances and the statement of the current month
+    private static class Scanner {
+        final long thresholdCents;
+        final ZoneId zone;
+        final long[] balances;
+        final List<Statement> finished = new ArrayList<>();
+        Statement current;
+        long floor;
+        // Bounds of the month current belongs to, so most entries need no calendar arithmetic
+        long monthStart = Long.MAX_VALUE;
+        long monthEnd = Long.MIN_VALUE;
+        int monthKey;
+
+        Scanner(long thresholdCents, ZoneId zone, long[] balances, long floor) {
+            this.thresholdCents = thresholdCents;
+            this.zone = zone;
+            this.balances = balances.clone();
+            this.floor = floor;
+        }
+
+        void scan(TransactionLedger ledger, int from, int to) {
+            for (int i = from; i < to; i++) {
+                accept(ledger.getTimestamp(i), ledger.getOp(i), ledger.getAccount(i), ledger.getCents(i));
+            }
+        }
+
+        List<Statement> statements() {
+            if (current == null) {
+                return finished;
+            }
+            List<Statement> all = new ArrayList<>(finished);
+            all.add(current);
+            return all;
+        }
+
+        void accept(long timestamp, char op, int account, long cents) {
+            long time = Math.max(timestamp, floor);
+            floor = time;
+            if (time < monthStart || time >= monthEnd) {
+                ZonedDateTime date = Instant.ofEpochMilli(time).atZone(zone);
+                monthKey = date.getYear() * 12 + date.getMonthValue() - 1;
+                ZonedDateTime first = date.toLocalDate().withDayOfMonth(1).atStartOfDay(zone);
+                monthStart = first.toInstant().toEpochMilli();
+                monthEnd = first.plusMonths(1).toInstant().toEpochMilli();
+            }
+            if (current == null || current.month != monthKey) {
+                if (current != null) {
+                    finished.add(current);
+                }
+                current = new Statement(monthKey, balances);
+            }
+
+            long before0 = balances[0];
+            long before1 = balances[1];
+            switch (op) {
+                case Transaction.INIT:
+                    balances[account] = cents;
+                    break;
+                case Transaction.DEPOSIT:
+                    balances[account] += cents;
+                    current.deposits[account] += cents;
+                    break;
+                case Transaction.WITHDRAW:
+                    balances[account] -= cents;
+                    current.withdrawals[account] += cents;
+                    break;
+                case Transaction.TRANSFER:
+                    balances[account] -= cents;
+                    balances[1 - account] += cents;
+                    current.transfersOut[account] += cents;
+                    current.transfersIn[1 - account] += cents;
+                    break;
+                default:
+                    balances[Transaction.SAVINGS] = 0;
+                    balances[Transaction.SPENDINGS] = 0;
+                    break;
+            }
+            current.entries++;
+            track(0, before0);
+            track(1, before1);
+        }
+
+        private void track(int account, long before) {
+            long after = balances[account];
+            current.closing[account] = after;
+            if (after < current.minimum[account]) {
+                current.minimum[account] = after;
+            }
+            if (before >= thresholdCents && after < thresholdCents) {
+                current.lowBalanceIncidents[account]++;
+            }
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package sudoku;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Streaming CSV import and export of the transaction history. Rows look like
+//   date,type,account,amount
+//   2024-03-01 09:15:00,withdraw,Spendings,120.00
+// where date is "yyyy-MM-dd HH:mm:ss", "yyyy-MM-dd" or epoch millis (empty means now), type is
+// init, deposit, withdraw, transfer or reset, account is Savings or Spendings (the source for a
+// transfer) and amount is in dollars. Import reads one row at a time, checks it against the same
+// rules as the banking buttons using an AccountEngine, and hands valid rows to a sink in batches,
+// so memory stays bounded by the batch size whatever the file size.
+public class TransactionCsv {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    public static final String HEADER = "date,type,account,amount";
+    private static final int MAX_ERRORS = 20;
+    private static final String[] TYPE_NAMES = {"init", "deposit", "withdraw", "transfer", "reset"};
+    private static final char[] TYPE_OPS = {Transaction.INIT, Transaction.DEPOSIT, Transaction.WITHDRAW,
+            Transaction.TRANSFER, Transaction.RESET};
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Receives each batch of accepted rows; one call should mean one write to storage
+    public interface BatchSink {
+        void accept(List<Transaction> batch) throws IOException;
+    }
+
+    public static class ImportResult {
+        long rows;
+        long imported;
+        long rejected;
+        long batches;
+        long nanos;
+        final List<String> errors = new ArrayList<>();
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        // First few rejected rows with their line numbers
+        public List<String> getErrors() {
+            return errors;
+        }
+
+        public double getRowsPerSecond() {
+            return nanos == 0 ? 0 : rows / (nanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d rows read, %d imported, %d rejected, %d batches in %.2f s (%.0f rows/s)",
+                    rows, imported, rejected, batches, nanos / 1e9, getRowsPerSecond());
+        }
+    }
+
+    // Validates each row against a scratch copy of balances and passes accepted rows to sink every
+    // batchSize rows. Each batch is applied to balances only once sink has accepted it, so if the
+    // sink throws, balances hold exactly what was written. Rows that break a rule are skipped and
+    // reported, not fatal.
+    public static ImportResult importCsv(BufferedReader in, AccountEngine balances, int batchSize, BatchSink sink) throws IOException {
+        ImportResult result = new ImportResult();
+        long start = System.nanoTime();
+        AccountEngine scratch = new AccountEngine(balances.getAccountCount());
+        for (int a = 0; a < balances.getAccountCount(); a++) {
+            scratch.setBalance(a, balances.getBalance(a));
+        }
+        List<Transaction> batch = new ArrayList<>(batchSize);
+        long importTime = System.currentTimeMillis();
+        String line;
+        long lineNumber = 0;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            if (line.trim().isEmpty() || lineNumber == 1 && line.trim().toLowerCase().startsWith("date,")) {
+                continue;
+            }
+            result.rows++;
+            Transaction t;
+            try {
+                t = parse(line, importTime);
+                apply(t, scratch);
+            } catch (IllegalArgumentException ex) {
+                result.rejected++;
+                if (result.errors.size() < MAX_ERRORS) {
+                    result.errors.add("line " + lineNumber + ": " + ex.getMessage());
+                }
+                continue;
+            }
+            batch.add(t);
+            if (batch.size() == batchSize) {
+                flush(batch, sink, balances, result);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(batch, sink, balances, result);
+        }
+        result.nanos = System.nanoTime() - start;
+        return result;
+    }
+
+    // The rows were already checked in order against the scratch copy, so applying them cannot fail
+    private static void flush(List<Transaction> batch, BatchSink sink, AccountEngine balances, ImportResult result) throws IOException {
+        sink.accept(batch);
+        for (Transaction t : batch) {
+            apply(t, balances);
+        }
+        result.imported += batch.size();
+        result.batches++;
+    }
+
+    // The same rules as processTransaction and processTransfer
+    private static void apply(Transaction t, AccountEngine balances) {
+        switch (t.op) {
+            case Transaction.INIT:
+                balances.setBalance(t.account, t.cents);
+                break;
+            case Transaction.DEPOSIT:
+                requirePositive(t);
+                requireRoom(balances.getBalance(t.account), t);
+                balances.deposit(t.account, t.cents);
+                break;
+            case Transaction.WITHDRAW:
+                requirePositive(t);
+                if (!balances.withdraw(t.account, t.cents)) {
+                    throw new IllegalArgumentException("insufficient funds for withdrawal");
+                }
+                break;
+            case Transaction.TRANSFER:
+                requirePositive(t);
+                requireRoom(balances.getBalance(1 - t.account), t);
+                if (!balances.transfer(t.account, 1 - t.account, t.cents)) {
+                    throw new IllegalArgumentException("insufficient funds for transfer");
+                }
+                break;
+            default:
+                balances.resetAll();
+                break;
+        }
+    }
+
+    private static void requirePositive(Transaction t) {
+        if (t.cents <= 0) {
+            throw new IllegalArgumentException("amount must be positive");
+        }
+    }
+
+    private static void requireRoom(long balance, Transaction t) {
+        if (!Transaction.fits(balance, t.cents)) {
+            throw new IllegalArgumentException("amount too large");
+        }
+    }
+
+    static Transaction parse(String line, long defaultTime) {
+        String[] fields = line.split(",", -1);
+        if (fields.length != 4) {
+            throw new IllegalArgumentException("expected 4 fields, found " + fields.length);
+        }
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = unquote(fields[i].trim());
+        }
+        long timestamp = parseTime(fields[0], defaultTime);
+        char op = 0;
+        for (int i = 0; i < TYPE_NAMES.length; i++) {
+            if (TYPE_NAMES[i].equalsIgnoreCase(fields[1])) {
+                op = TYPE_OPS[i];
+            }
+        }
+        if (op == 0) {
+            throw new IllegalArgumentException("unknown type \"" + fields[1] + "\"");
+        }
+        if (op == Transaction.RESET) {
+            return new Transaction(timestamp, op, Transaction.SAVINGS, 0);
+        }
+        int account;
+        if ("Savings".equalsIgnoreCase(fields[2])) {
+            account = Transaction.SAVINGS;
+        } else if ("Spendings".equalsIgnoreCase(fields[2])) {
+            account = Transaction.SPENDINGS;
+        } else {
+            throw new IllegalArgumentException("unknown account \"" + fields[2] + "\"");
+        }
+        long cents;
+        try {
+            cents = Transaction.toCents(Double.parseDouble(fields[3]));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("bad amount \"" + fields[3] + "\"");
+        }
+        if (cents < 0) {
+            throw new IllegalArgumentException("amount must not be negative");
+        }
+        return new Transaction(timestamp, op, account, cents);
+    }
+
+    private static String unquote(String field) {
+        if (field.length() >= 2 && field.startsWith("\"") && field.endsWith("\"")) {
+            return field.substring(1, field.length() - 1).replace("\"\"", "\"");
+        }
+        return field;
+    }
+
+    private static long parseTime(String field, long defaultTime) {
+        if (field.isEmpty()) {
+            return defaultTime;
+        }
+        try {
+            if (field.chars().allMatch(Character::isDigit)) {
+                return Long.parseLong(field);
+            }
+            if (field.length() == 10) {
+                return LocalDate.parse(field).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            }
+            return LocalDateTime.parse(field, DATE_TIME).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException | NumberFormatException ex) {
+            throw new IllegalArgumentException("bad date \"" + field + "\"");
+        }
+    }
+
+    public static String format(Transaction t) {
+        // Records migrated from the old text history carry no time
+        String date = t.timestamp == 0 ? ""
+                : DATE_TIME.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(t.timestamp), ZoneId.systemDefault()));
+        String type = "";
+        for (int i = 0; i < TYPE_OPS.length; i++) {
+            if (TYPE_OPS[i] == t.op) {
+                type = TYPE_NAMES[i];
+            }
+        }
+        String account = t.op == Transaction.RESET ? "" : Transaction.ACCOUNT_NAMES[t.account];
+        long fraction = t.cents % 100;
+        return date + "," + type + "," + account + "," + t.cents / 100 + (fraction < 10 ? ".0" : ".") + fraction;
+    }
+
+    // Streams records [0, count) of the journal out a page at a time. Returns the number of rows.
+    public static long exportCsv(AccountJournal journal, long count, Writer out) throws IOException {
+        out.write(HEADER);
+        out.write('\n');
+        long rows = 0;
+        for (long from = 0; from < count; from += TransactionTableModel.PAGE_SIZE) {
+            for (Transaction t : journal.readRecords(from, TransactionTableModel.PAGE_SIZE)) {
+                out.write(format(t));
+                out.write('\n');
+                rows++;
+            }
+        }
+        out.flush();
+        return rows;
+    }
+
+    // Headless bulk load and dump against the account files in a directory:
+    //   java sudoku.TransactionCsv import <csv> [directory]
+    //   java sudoku.TransactionCsv export <csv> [directory]
+    // Import writes each batch to the journal with one append and one fsync.
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || !"import".equals(args[0]) && !"export".equals(args[0])) {
+            System.err.println("Usage: java sudoku.TransactionCsv import|export <csv> [directory]");
+            System.exit(2);
+        }
+        File directory = new File(args.length > 2 ? args[2] : ".");
+        AccountJournal journal = new AccountJournal(directory);
+        journal.open();
+        try {
+            if ("export".equals(args[0])) {
+                long start = System.nanoTime();
+                try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(args[1]), StandardCharsets.UTF_8), 1 << 16)) {
+                    long rows = exportCsv(journal, journal.getRecordCount(), out);
+                    double seconds = (System.nanoTime() - start) / 1e9;
+                    System.out.printf("%d rows exported in %.2f s (%.0f rows/s)%n", rows, seconds, rows / seconds);
+                }
+                return;
+            }
+            AccountEngine balances = new AccountEngine(Transaction.ACCOUNT_NAMES.length);
+            balances.setBalance(Transaction.SAVINGS, journal.getBalance(Transaction.SAVINGS));
+            balances.setBalance(Transaction.SPENDINGS, journal.getBalance(Transaction.SPENDINGS));
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(args[1]), StandardCharsets.UTF_8), 1 << 16)) {
+                ImportResult result = importCsv(in, balances, DEFAULT_BATCH_SIZE, journal::appendAll);
+                System.out.println(result);
+                for (String error : result.getErrors()) {
+                    System.out.println("  " + error);
+                }
+            }
+        } finally {
+            journal.close();
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package sudoku;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Searchable copy of the whole transaction history. Entries live in a TransactionLedger; on top
+// of it the index keeps ledger positions sorted by timestamp, once overall and once per
+// (account, op) pair. A reset zeroes both accounts, so it belongs to neither and has one list of
+// its own that every account's queries take in. A query picks the lists matching its account and
+// op, binary-searches each for the time range, filters that slice by amount and merges the slices
+// back into time order, so it never walks entries outside the requested accounts, types and dates.
+public class TransactionIndex {
+    private static final String OPS = "" + Transaction.INIT + Transaction.DEPOSIT + Transaction.WITHDRAW
+            + Transaction.TRANSFER + Transaction.RESET;
+
+    private final TransactionLedger ledger = new TransactionLedger();
+    private final PositionList byTime = new PositionList();
+    private final PositionList[][] byAccountAndOp = new PositionList[Transaction.ACCOUNT_NAMES.length][OPS.length()];
+    private final PositionList resets = new PositionList();
+
+    // Filter for query(); every field left alone matches everything
+    public static class Query {
+        int account = TransactionLedger.ANY_ACCOUNT;
+        char op = TransactionLedger.ANY_OP;
+        long fromTime = Long.MIN_VALUE;
+        long toTime = Long.MAX_VALUE;
+        long minCents = Long.MIN_VALUE;
+        long maxCents = Long.MAX_VALUE;
+
+        public Query account(int account) {
+            this.account = account;
+            return this;
+        }
+
+        public Query op(char op) {
+            this.op = op;
+            return this;
+        }
+
+        // fromTime inclusive, toTime exclusive, in epoch millis
+        public Query between(long fromTime, long toTime) {
+            this.fromTime = fromTime;
+            this.toTime = toTime;
+            return this;
+        }
+
+        // Both bounds inclusive
+        public Query amountBetween(long minCents, long maxCents) {
+            this.minCents = minCents;
+            this.maxCents = maxCents;
+            return this;
+        }
+    }
+
+    public TransactionIndex() {
+        for (PositionList[] lists : byAccountAndOp) {
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = new PositionList();
+            }
+        }
+    }
+
+    public void add(Transaction t) {
+        int position = ledger.size();
+        ledger.append(t);
+        byTime.insert(position);
+        int op = OPS.indexOf(t.op);
+        if (t.op == Transaction.RESET) {
+            resets.insert(position);
+        } else if (op >= 0 && t.account >= 0 && t.account < byAccountAndOp.length) {
+            byAccountAndOp[t.account][op].insert(position);
+        }
+    }
+
+    public TransactionLedger getLedger() {
+        return ledger;
+    }
+
+    public int size() {
+        return ledger.size();
+    }
+
+    // Ledger positions of the matching entries, oldest first
+    public int[] query(Query query) {
+        PositionList[] lists;
+        if (query.account == TransactionLedger.ANY_ACCOUNT && query.op == TransactionLedger.ANY_OP) {
+            lists = new PositionList[]{byTime};
+        } else {
+            int op = OPS.indexOf(query.op);
+            if (query.op != TransactionLedger.ANY_OP && op < 0) {
+                return new int[0];
+            }
+            int firstAccount = query.account == TransactionLedger.ANY_ACCOUNT ? 0 : query.account;
+            int lastAccount = query.account == TransactionLedger.ANY_ACCOUNT ? byAccountAndOp.length - 1 : query.account;
+            int firstOp = op < 0 ? 0 : op;
+            int lastOp = op < 0 ? OPS.length() - 1 : op;
+            int reset = OPS.indexOf(Transaction.RESET);
+            boolean withResets = firstOp <= reset && reset <= lastOp;
+            lists = new PositionList[(lastAccount - firstAccount + 1) * (lastOp - firstOp + 1 - (withResets ? 1 : 0))
+                    + (withResets ? 1 : 0)];
+            int n = 0;
+            for (int account = firstAccount; account <= lastAccount; account++) {
+                for (int o = firstOp; o <= lastOp; o++) {
+                    if (o != reset) {
+                        lists[n++] = byAccountAndOp[account][o];
+                    }
+                }
+            }
+            if (withResets) {
+                lists[n] = resets;
+            }
+        }
+
+        int[][] slices = new int[lists.length][];
+        int total = 0;
+        for (int i = 0; i < lists.length; i++) {
+            slices[i] = lists[i].select(query.fromTime, query.toTime, query.minCents, query.maxCents);
+            total += slices[i].length;
+        }
+        return slices.length == 1 ? slices[0] : merge(slices, total);
+    }
+
+    // k-way merge of slices that are each in time order
+    private int[] merge(int[][] slices, int total) {
+        int[] result = new int[total];
+        int[] heads = new int[slices.length];
+        for (int n = 0; n < total; n++) {
+            int best = -1;
+            for (int i = 0; i < slices.length; i++) {
+                if (heads[i] < slices[i].length && (best < 0 || before(slices[i][heads[i]], slices[best][heads[best]]))) {
+                    best = i;
+                }
+            }
+            result[n] = slices[best][heads[best]++];
+        }
+        return result;
+    }
+
+    private boolean before(int a, int b) {
+        long ta = ledger.getTimestamp(a);
+        long tb = ledger.getTimestamp(b);
+        return ta < tb || ta == tb && a < b;
+    }
+
+    // Ledger positions kept sorted by (timestamp, position). Entries almost always arrive in time
+    // order and are simply appended; an older timestamp (clock change) is inserted in place.
+    private class PositionList {
+        private int[] positions = new int[16];
+        private int size;
+
+        void insert(int position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            long time = ledger.getTimestamp(position);
+            int at = size;
+            if (size > 0 && ledger.getTimestamp(positions[size - 1]) > time) {
+                at = lowerBound(time + 1);
+                System.arraycopy(positions, at, positions, at + 1, size - at);
+            }
+            positions[at] = position;
+            size++;
+        }
+
+        // First index whose timestamp is >= time
+        int lowerBound(long time) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (ledger.getTimestamp(positions[mid]) < time) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        int[] select(long fromTime, long toTime, long minCents, long maxCents) {
+            int from = fromTime == Long.MIN_VALUE ? 0 : lowerBound(fromTime);
+            int to = toTime == Long.MAX_VALUE ? size : lowerBound(toTime);
+            if (from >= to) {
+                return new int[0];
+            }
+            if (minCents == Long.MIN_VALUE && maxCents == Long.MAX_VALUE) {
+                return Arrays.copyOfRange(positions, from, to);
+            }
+            int[] matches = new int[to - from];
+            int n = 0;
+            for (int i = from; i < to; i++) {
+                long cents = ledger.getCents(positions[i]);
+                if (cents >= minCents && cents <= maxCents) {
+                    matches[n++] = positions[i];
+                }
+            }
+            return Arrays.copyOf(matches, n);
+        }
+    }
+
+    // Times a few typical queries against a large random history.
+    // Usage: java sudoku.TransactionIndex [entries]
+    public static void main(String[] args) {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Random random = new Random(7);
+        TransactionIndex index = new TransactionIndex();
+        long day = 24L * 60 * 60 * 1000;
+        long start = System.currentTimeMillis() - 365 * day;
+        long step = 365 * day / entries;
+        long buildStart = System.nanoTime();
+        for (int i = 0; i < entries; i++) {
+            char op = OPS.charAt(1 + random.nextInt(3));
+            index.add(new Transaction(start + i * step, op, random.nextInt(2), random.nextInt(50_000)));
+        }
+        System.out.printf("indexed %d entries in %.1f ms%n", entries, (System.nanoTime() - buildStart) / 1e6);
+
+        long lastMonth = start + 334 * day;
+        Query[] queries = {
+                new Query().account(Transaction.SPENDINGS).op(Transaction.WITHDRAW).between(lastMonth, lastMonth + 30 * day).amountBetween(10_000, Long.MAX_VALUE),
+                new Query().op(Transaction.TRANSFER).between(lastMonth, lastMonth + day),
+                new Query().account(Transaction.SAVINGS).between(lastMonth, lastMonth + 7 * day),
+                new Query().amountBetween(49_990, 49_999),
+        };
+        String[] names = {"Spendings withdrawals > $100 last month", "transfers on one day",
+                "Savings, one week", "amount range only, whole history"};
+        for (int q = 0; q < queries.length; q++) {
+            int matches = 0;
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < 20; run++) {
+                long t0 = System.nanoTime();
+                matches = index.query(queries[q]).length;
+                best = Math.min(best, System.nanoTime() - t0);
+            }
+            System.out.printf("%-42s %7d matches, best %.3f ms%n", names[q], matches, best / 1e6);
+        }
+    }
+}
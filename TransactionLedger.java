@@ -0,0 +1,183 @@
+package sudoku;
+
+import java.util.Arrays;
+
+// In-memory transaction history kept as parallel primitive columns instead of one String per
+// entry. Columns grow a fixed-size chunk at a time, so appending never copies existing entries,
+// and scans over a range of indexes walk plain arrays. Display text is only built by describe().
+public class TransactionLedger {
+    public static final char ANY_OP = 0;
+    public static final int ANY_ACCOUNT = -1;
+
+    private static final int CHUNK_BITS = 12;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private long[][] timestamps = new long[0][];
+    private char[][] ops = new char[0][];
+    private byte[][] accounts = new byte[0][];
+    private long[][] cents = new long[0][];
+    private int size;
+    private boolean readOnly;
+
+    public void append(Transaction t) {
+        append(t.timestamp, t.op, t.account, t.cents);
+    }
+
+    public void append(long timestamp, char op, int account, long amountCents) {
+        checkWritable();
+        int chunk = size >>> CHUNK_BITS;
+        if (chunk == timestamps.length) {
+            // Only the small chunk tables are copied here, never the entries themselves
+            timestamps = Arrays.copyOf(timestamps, chunk + 1);
+            ops = Arrays.copyOf(ops, chunk + 1);
+            accounts = Arrays.copyOf(accounts, chunk + 1);
+            cents = Arrays.copyOf(cents, chunk + 1);
+            timestamps[chunk] = new long[CHUNK_SIZE];
+            ops[chunk] = new char[CHUNK_SIZE];
+            accounts[chunk] = new byte[CHUNK_SIZE];
+            cents[chunk] = new long[CHUNK_SIZE];
+        }
+        int offset = size & CHUNK_MASK;
+        timestamps[chunk][offset] = timestamp;
+        ops[chunk][offset] = op;
+        accounts[chunk][offset] = (byte) account;
+        cents[chunk][offset] = amountCents;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        checkWritable();
+        timestamps = new long[0][];
+        ops = new char[0][];
+        accounts = new byte[0][];
+        cents = new long[0][];
+        size = 0;
+    }
+
+    // A read-only view of the entries so far that shares their storage. Appends only ever write past
+    // the end, so another thread can scan the view while this ledger keeps growing.
+    public TransactionLedger snapshot() {
+        TransactionLedger view = new TransactionLedger();
+        view.timestamps = timestamps.clone();
+        view.ops = ops.clone();
+        view.accounts = accounts.clone();
+        view.cents = cents.clone();
+        view.size = size;
+        view.readOnly = true;
+        return view;
+    }
+
+    private void checkWritable() {
+        if (readOnly) {
+            throw new IllegalStateException("ledger snapshot is read-only");
+        }
+    }
+
+    public long getTimestamp(int index) {
+        checkIndex(index);
+        return timestamps[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    public char getOp(int index) {
+        checkIndex(index);
+        return ops[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    public int getAccount(int index) {
+        checkIndex(index);
+        return accounts[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    public long getCents(int index) {
+        checkIndex(index);
+        return cents[index >>> CHUNK_BITS][index & CHUNK_MASK];
+    }
+
+    public Transaction get(int index) {
+        return new Transaction(getTimestamp(index), getOp(index), getAccount(index), getCents(index));
+    }
+
+    // The history line for one entry, built only when something is about to show it
+    public String describe(int index) {
+        return get(index).describe();
+    }
+
+    // Applies entries [from, to) to balances indexed by account id, chunk by chunk
+    public void applyRange(int from, int to, long[] balances) {
+        checkRange(from, to);
+        for (int i = from; i < to; ) {
+            int chunk = i >>> CHUNK_BITS;
+            int end = Math.min(to, (chunk + 1) << CHUNK_BITS);
+            char[] opChunk = ops[chunk];
+            byte[] accountChunk = accounts[chunk];
+            long[] centsChunk = cents[chunk];
+            for (; i < end; i++) {
+                int offset = i & CHUNK_MASK;
+                int account = accountChunk[offset];
+                long amount = centsChunk[offset];
+                switch (opChunk[offset]) {
+                    case Transaction.INIT:
+                        balances[account] = amount;
+                        break;
+                    case Transaction.DEPOSIT:
+                        if (Transaction.fits(balances[account], amount)) {
+                            balances[account] += amount;
+                        }
+                        break;
+                    case Transaction.WITHDRAW:
+                        balances[account] -= amount;
+                        break;
+                    case Transaction.TRANSFER:
+                        if (Transaction.fits(balances[1 - account], amount)) {
+                            balances[account] -= amount;
+                            balances[1 - account] += amount;
+                        }
+                        break;
+                    case Transaction.RESET:
+                        balances[Transaction.SAVINGS] = 0;
+                        balances[Transaction.SPENDINGS] = 0;
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown operation " + opChunk[offset]);
+                }
+            }
+        }
+    }
+
+    // Sum of amounts in [from, to) with the given op and account; ANY_OP / ANY_ACCOUNT match everything
+    public long sumCents(int from, int to, char op, int account) {
+        checkRange(from, to);
+        long total = 0;
+        for (int i = from; i < to; ) {
+            int chunk = i >>> CHUNK_BITS;
+            int end = Math.min(to, (chunk + 1) << CHUNK_BITS);
+            char[] opChunk = ops[chunk];
+            byte[] accountChunk = accounts[chunk];
+            long[] centsChunk = cents[chunk];
+            for (; i < end; i++) {
+                int offset = i & CHUNK_MASK;
+                if ((op == ANY_OP || opChunk[offset] == op) && (account == ANY_ACCOUNT || accountChunk[offset] == account)) {
+                    total += centsChunk[offset];
+                }
+            }
+        }
+        return total;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        }
+    }
+
+    private void checkRange(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range " + from + ".." + to + ", size " + size);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package sudoku;
+
+import javax.swing.table.AbstractTableModel;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Table model for the history tab. Nothing is loaded up front: rows written before this session
+// are read from the journal a page at a time as the table asks for them (JTable only asks for
+// visible rows), and a handful of recent pages are kept. Rows logged this session come from the
+// in-memory ledger, so appending one is a single row-inserted event. showResults() switches the
+// table to a query result until clearResults().
+public class TransactionTableModel extends AbstractTableModel {
+    public static final int PAGE_SIZE = 1024;
+    private static final int CACHED_PAGES = 16;
+    private static final String[] COLUMNS = {"Time", "Transaction"};
+
+    private final AccountJournal journal;
+    private final TransactionLedger recent;
+    private final long stored;
+    private TransactionLedger results;
+    private int[] resultRows;
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+    // Least recently used page is dropped first
+    private final Map<Long, List<Transaction>> pages = new LinkedHashMap<Long, List<Transaction>>(CACHED_PAGES, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, List<Transaction>> eldest) {
+            return size() > CACHED_PAGES;
+        }
+    };
+
+    // stored is the journal's record count when it was opened; recent holds everything logged since
+    public TransactionTableModel(AccountJournal journal, long stored, TransactionLedger recent) {
+        this.journal = journal;
+        this.recent = recent;
+        this.stored = stored;
+    }
+
+    // Shows only the entries at the given ledger positions, in that order
+    public void showResults(TransactionLedger ledger, int[] rows) {
+        results = ledger;
+        resultRows = rows;
+        fireTableDataChanged();
+    }
+
+    public void clearResults() {
+        results = null;
+        resultRows = null;
+        fireTableDataChanged();
+    }
+
+    public boolean isShowingResults() {
+        return resultRows != null;
+    }
+
+    // Call after appending to the ledger
+    public void transactionAdded() {
+        transactionsAdded(1);
+    }
+
+    public void transactionsAdded(int count) {
+        if (resultRows != null || count == 0) {
+            // Query results are a snapshot; the caller re-runs the query if it wants the new entries
+            return;
+        }
+        int last = getRowCount() - 1;
+        fireTableRowsInserted(last - count + 1, last);
+    }
+
+    @Override
+    public int getRowCount() {
+        if (resultRows != null) {
+            return resultRows.length;
+        }
+        return (int) (stored + recent.size());
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        Transaction t = getTransaction(row);
+        if (t == null) {
+            return column == 0 ? "" : "(unreadable)";
+        }
+        if (column == 0) {
+            // Records migrated from the old text history carry no time
+            return t.timestamp == 0 ? "" : timeFormat.format(new Date(t.timestamp));
+        }
+        return t.describe();
+    }
+
+    public Transaction getTransaction(int row) {
+        if (resultRows != null) {
+            return results.get(resultRows[row]);
+        }
+        if (row >= stored) {
+            return recent.get((int) (row - stored));
+        }
+        long page = row / PAGE_SIZE;
+        List<Transaction> records = pages.get(page);
+        if (records == null) {
+            try {
+                records = journal.readRecords(page * PAGE_SIZE, (int) Math.min(PAGE_SIZE, stored - page * PAGE_SIZE));
+            } catch (IOException ex) {
+                return null;
+            }
+            pages.put(page, records);
+        }
+        int index = (int) (row - page * PAGE_SIZE);
+        return index < records.size() ? records.get(index) : null;
+    }
+}
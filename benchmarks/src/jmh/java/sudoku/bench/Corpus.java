@@ -0,0 +1,62 @@
+package sudoku.bench;
+
+import sudoku.PuzzleFormat;
+import sudoku.PuzzleGenerator;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Fixed-seed puzzle sets shared by the benchmarks, so runs on different commits see the same boards.
+public final class Corpus {
+    public static final long SEED = 20240517L;
+    public static final int PUZZLES = 32;
+
+    // Minimal (17-clue) 9x9 puzzles with unique solutions
+    private static final String[] SEVENTEEN_CLUE = {
+            "000000010400000000020000000000050407008000300001090000300400200050100000000806000",
+            "000000010400000000020000000000050604008000300001090000300400200050100000000807000",
+            "000000012000035000000600070700000300000400800100000000000120000080000040050000600",
+            "000000012003600000000007000410020000000500300700000600280000040000300500000000000",
+            "000000012008030000000000040120500000000004700060000000507000300000620000000100000",
+            "000000012040050000000009000070600400000100000000000050000087500601000300200000000",
+            "000000012050400000000000030700600400001000000000080000920000800000510700000003000",
+    };
+
+    private Corpus() {
+    }
+
+    // Names: 4x4, 6x6, 9x9-easy, 9x9-medium, 9x9-17
+    public static List<int[][]> load(String name) {
+        List<int[][]> puzzles = new ArrayList<>();
+        switch (name) {
+            case "4x4":
+                generate(puzzles, 4, PuzzleGenerator.targetClues(4));
+                break;
+            case "6x6":
+                generate(puzzles, 6, PuzzleGenerator.targetClues(6));
+                break;
+            case "9x9-easy":
+                generate(puzzles, 9, 36);
+                break;
+            case "9x9-medium":
+                generate(puzzles, 9, PuzzleGenerator.targetClues(9));
+                break;
+            case "9x9-17":
+                for (String puzzle : SEVENTEEN_CLUE) {
+                    puzzles.add(PuzzleFormat.parse(puzzle));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown corpus " + name);
+        }
+        return puzzles;
+    }
+
+    private static void generate(List<int[][]> puzzles, int size, int clues) {
+        PuzzleGenerator generator = new PuzzleGenerator(SEED + size * 31L + clues);
+        for (int i = 0; i < PUZZLES; i++) {
+            // No time budget so the corpus only depends on the seed
+            puzzles.add(generator.generate(size, clues).getBoard());
+        }
+    }
+}
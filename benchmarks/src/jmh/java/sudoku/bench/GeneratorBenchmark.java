@@ -0,0 +1,28 @@
+package sudoku.bench;
+
+import org.openjdk.jmh.annotations.*;
+import sudoku.PuzzleGenerator;
+import sudoku.Sudoku;
+
+import java.util.concurrent.TimeUnit;
+
+// What a New Game click costs: one full unique-solution puzzle per call.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GeneratorBenchmark {
+    @Param({"4", "6", "9"})
+    public int size;
+
+    private PuzzleGenerator generator;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        generator = new PuzzleGenerator(Corpus.SEED);
+    }
+
+    @Benchmark
+    public Sudoku newGame() {
+        return generator.generate(size);
+    }
+}
@@ -0,0 +1,37 @@
+package sudoku.bench;
+
+import org.openjdk.jmh.annotations.*;
+import sudoku.BacktrackingSolver;
+import sudoku.Sudoku;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The original naive backtracker; kept off the 17-clue corpus, where a single solve can take minutes.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ReferenceSolverBenchmark {
+    @Param({"4x4", "6x6", "9x9-easy"})
+    public String corpus;
+
+    private Sudoku[] puzzles;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<int[][]> boards = Corpus.load(corpus);
+        puzzles = new Sudoku[boards.size()];
+        for (int i = 0; i < puzzles.length; i++) {
+            puzzles[i] = new Sudoku(boards.get(i));
+            puzzles[i].setSolver(new BacktrackingSolver());
+        }
+    }
+
+    @Benchmark
+    public boolean solve() {
+        Sudoku sudoku = puzzles[next++ % puzzles.length];
+        sudoku.resetToFixedValues();
+        return sudoku.solve();
+    }
+}
@@ -0,0 +1,46 @@
+package sudoku.bench;
+
+import org.openjdk.jmh.annotations.*;
+import sudoku.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Full solves from the givens, per engine and corpus.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SolverBenchmark {
+    @Param({"4x4", "6x6", "9x9-easy", "9x9-medium", "9x9-17"})
+    public String corpus;
+
+    @Param({"constraint", "dancing-links"})
+    public String engine;
+
+    private Sudoku[] puzzles;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<int[][]> boards = Corpus.load(corpus);
+        puzzles = new Sudoku[boards.size()];
+        for (int i = 0; i < puzzles.length; i++) {
+            puzzles[i] = new Sudoku(boards.get(i));
+            puzzles[i].setSolver("constraint".equals(engine) ? new ConstraintSolver() : new DancingLinksSolver());
+        }
+    }
+
+    @Benchmark
+    public boolean solve() {
+        Sudoku sudoku = puzzles[next++ % puzzles.length];
+        sudoku.resetToFixedValues();
+        return sudoku.solve();
+    }
+
+    @Benchmark
+    public int countToTwo() {
+        Sudoku sudoku = puzzles[next++ % puzzles.length];
+        sudoku.resetToFixedValues();
+        return sudoku.countSolutions(2);
+    }
+}
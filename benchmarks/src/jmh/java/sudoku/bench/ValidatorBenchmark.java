@@ -0,0 +1,40 @@
+package sudoku.bench;
+
+import org.openjdk.jmh.annotations.*;
+import sudoku.Sudoku;
+
+import java.util.concurrent.TimeUnit;
+
+// Single isValid probes on a puzzle in progress and whole-grid validation of a solved board.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ValidatorBenchmark {
+    @Param({"4x4", "6x6", "9x9-medium"})
+    public String corpus;
+
+    private Sudoku puzzle;
+    private Sudoku solved;
+    private int size;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[][] board = Corpus.load(corpus).get(0);
+        puzzle = new Sudoku(board);
+        solved = new Sudoku(board);
+        solved.solve();
+        size = puzzle.getSize();
+    }
+
+    @Benchmark
+    public boolean isValid() {
+        int i = next++ % (size * size);
+        return puzzle.isValid(i / size, i % size, i % size + 1);
+    }
+
+    @Benchmark
+    public boolean isGridValid() {
+        return solved.isGridValid();
+    }
+}
@@ -0,0 +1,87 @@
+package sudoku;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountEngineTest {
+    private static final int ACCOUNTS = 64;
+    private static final int THREADS = 8;
+    private static final int TRANSFERS_PER_THREAD = 200_000;
+
+    // Random transfers from many threads, with few stripes so they collide, must neither create
+    // nor destroy money, and getTotal() must see the same total the whole time
+    @Test
+    void concurrentTransfersConserveTotal() {
+        AccountEngine engine = new AccountEngine(ACCOUNTS, 4);
+        Random random = new Random(42);
+        for (int i = 0; i < ACCOUNTS; i++) {
+            engine.setBalance(i, random.nextInt(100_000));
+        }
+        long expected = engine.getTotal();
+
+        LongAdder applied = new LongAdder();
+        LongAdder mismatches = new LongAdder();
+        AtomicBoolean done = new AtomicBoolean();
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> {
+            Thread auditor = new Thread(() -> {
+                while (!done.get()) {
+                    if (engine.getTotal() != expected) {
+                        mismatches.increment();
+                    }
+                }
+            }, "auditor");
+            auditor.start();
+            Thread[] workers = new Thread[THREADS];
+            for (int t = 0; t < THREADS; t++) {
+                workers[t] = new Thread(() -> {
+                    ThreadLocalRandom r = ThreadLocalRandom.current();
+                    for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                        // Hot accounts at the low end, and transfers in both directions between them
+                        int from = r.nextBoolean() ? r.nextInt(8) : r.nextInt(ACCOUNTS);
+                        int to = r.nextInt(ACCOUNTS);
+                        if (engine.transfer(from, to, r.nextInt(5_000))) {
+                            applied.increment();
+                        }
+                    }
+                }, "transfer-" + t);
+                workers[t].start();
+            }
+            for (Thread worker : workers) {
+                worker.join();
+            }
+            done.set(true);
+            auditor.join();
+        });
+
+        long total = 0;
+        for (int i = 0; i < ACCOUNTS; i++) {
+            assertTrue(engine.getBalance(i) >= 0, "account " + i + " went negative");
+            total += engine.getBalance(i);
+        }
+        assertEquals(expected, total);
+        assertEquals(expected, engine.getTotal());
+        assertEquals(0, mismatches.sum(), "getTotal() saw a half-applied transfer");
+        assertTrue(applied.sum() > 0);
+    }
+
+    @Test
+    void failedOperationsChangeNothing() {
+        AccountEngine engine = new AccountEngine(2);
+        engine.setBalance(0, 100);
+        assertFalse(engine.withdraw(0, 101));
+        assertFalse(engine.transfer(0, 1, 101));
+        assertEquals(100, engine.getBalance(0));
+        assertEquals(0, engine.getBalance(1));
+        assertTrue(engine.transfer(0, 1, 100));
+        assertEquals(0, engine.getBalance(0));
+        assertEquals(100, engine.getBalance(1));
+        assertThrows(IllegalArgumentException.class, () -> engine.deposit(0, -1));
+    }
+}
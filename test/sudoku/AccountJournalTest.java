@@ -0,0 +1,128 @@
+package sudoku;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AccountJournalTest {
+    @TempDir
+    File directory;
+
+    // Older versions could journal a deposit the balances never took; replaying it must leave
+    // them as the banking window had them instead of wrapping negative
+    @Test
+    void replaySkipsDepositThatWouldOverflow() throws IOException {
+        long huge = Transaction.toCents(1e17);
+        AccountJournal journal = new AccountJournal(directory);
+        journal.open();
+        journal.writeHeader("secret", 1, 2);
+        journal.appendAll(Arrays.asList(
+                new Transaction(1, Transaction.INIT, Transaction.SAVINGS, 10_000),
+                new Transaction(2, Transaction.INIT, Transaction.SPENDINGS, 5_000),
+                new Transaction(3, Transaction.DEPOSIT, Transaction.SAVINGS, Long.MAX_VALUE - 20_000),
+                new Transaction(4, Transaction.DEPOSIT, Transaction.SAVINGS, huge),
+                new Transaction(5, Transaction.TRANSFER, Transaction.SPENDINGS, huge),
+                new Transaction(6, Transaction.WITHDRAW, Transaction.SPENDINGS, 1_000)));
+        long savings = Long.MAX_VALUE - 10_000;
+        assertEquals(savings, journal.getBalance(Transaction.SAVINGS));
+        journal.close();
+
+        AccountJournal reopened = new AccountJournal(directory);
+        reopened.open();
+        try {
+            assertEquals(6, reopened.getRecordCount());
+            assertEquals(savings, reopened.getBalance(Transaction.SAVINGS));
+            assertEquals(4_000, reopened.getBalance(Transaction.SPENDINGS));
+            // What loadAccountData does with them; a negative balance would throw here
+            AccountEngine accounts = new AccountEngine(Transaction.ACCOUNT_NAMES.length);
+            accounts.setBalance(Transaction.SAVINGS, reopened.getBalance(Transaction.SAVINGS));
+            accounts.setBalance(Transaction.SPENDINGS, reopened.getBalance(Transaction.SPENDINGS));
+            assertThrows(ArithmeticException.class, () -> accounts.deposit(Transaction.SAVINGS, huge));
+            assertFalse(Transaction.fits(accounts.getBalance(Transaction.SAVINGS), huge));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    private List<Transaction> deposits(int count) {
+        List<Transaction> records = new ArrayList<>();
+        records.add(new Transaction(1, Transaction.INIT, Transaction.SAVINGS, 0));
+        for (int i = 1; i < count; i++) {
+            records.add(new Transaction(1 + i, Transaction.DEPOSIT, Transaction.SAVINGS, 100));
+        }
+        return records;
+    }
+
+    // Flips one byte inside a record, which its CRC32 has to catch
+    private void corruptRecord(long index) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(new File(directory, "account_ledger.bin"), "rw")) {
+            long offset = AccountJournal.HEADER_LENGTH + index * AccountJournal.RECORD_LENGTH + 9;
+            file.seek(offset);
+            int value = file.read();
+            file.seek(offset);
+            file.write(value ^ 0x40);
+        }
+    }
+
+    // No checkpoint covers the damage, as after a crash: replay has to stop at the bad record
+    @Test
+    void replayStopsAtFirstRecordFailingItsChecksum() throws IOException {
+        AccountJournal journal = new AccountJournal(directory);
+        journal.open();
+        journal.appendAll(deposits(10));
+        journal.close();
+        new SnapshotFile(directory, "account_checkpoint").delete();
+        corruptRecord(7);
+
+        AccountJournal reopened = new AccountJournal(directory);
+        reopened.open();
+        try {
+            assertEquals(7, reopened.getRecordCount());
+            assertEquals(600, reopened.getBalance(Transaction.SAVINGS));
+            assertEquals(7, reopened.readRecords(0, 100).size());
+
+            // New records go where the torn one was, and the next start sees all of them
+            reopened.append(new Transaction(50, Transaction.WITHDRAW, Transaction.SAVINGS, 50));
+            assertEquals(8, reopened.getRecordCount());
+        } finally {
+            reopened.close();
+        }
+        new SnapshotFile(directory, "account_checkpoint").delete();
+        AccountJournal again = new AccountJournal(directory);
+        again.open();
+        try {
+            assertEquals(8, again.getRecordCount());
+            assertEquals(550, again.getBalance(Transaction.SAVINGS));
+            assertEquals(Transaction.WITHDRAW, again.readRecords(7, 1).get(0).op);
+        } finally {
+            again.close();
+        }
+    }
+
+    // A checkpoint whose last record no longer reads back is not trusted
+    @Test
+    void checkpointOverDamagedRecordsIsIgnored() throws IOException {
+        AccountJournal journal = new AccountJournal(directory);
+        journal.open();
+        journal.appendAll(deposits(10));
+        journal.close();
+        corruptRecord(9);
+
+        AccountJournal reopened = new AccountJournal(directory);
+        reopened.open();
+        try {
+            assertEquals(9, reopened.getRecordCount());
+            assertEquals(800, reopened.getBalance(Transaction.SAVINGS));
+        } finally {
+            reopened.close();
+        }
+    }
+}
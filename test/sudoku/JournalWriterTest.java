@@ -0,0 +1,54 @@
+package sudoku;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JournalWriterTest {
+    @TempDir
+    File directory;
+
+    @Test
+    void closeWritesEverythingSubmitted() throws IOException, InterruptedException {
+        AccountJournal journal = new AccountJournal(directory);
+        journal.open();
+        JournalWriter writer = new JournalWriter(journal, 16, null);
+        for (int i = 0; i < 100; i++) {
+            writer.submit(new Transaction(i, Transaction.DEPOSIT, Transaction.SAVINGS, 1));
+        }
+        List<Transaction> batch = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            batch.add(new Transaction(i, Transaction.WITHDRAW, Transaction.SAVINGS, 1));
+        }
+        assertTrue(writer.awaitDurable(writer.submitAll(batch)));
+        assertTrue(writer.close(10_000));
+        assertEquals(110, journal.getRecordCount());
+        assertEquals(90, journal.getBalance(Transaction.SAVINGS));
+        assertThrows(IllegalStateException.class, () -> writer.submit(new Transaction(0, Transaction.RESET, 0, 0)));
+        journal.close();
+    }
+
+    // A batch stuck retrying a failing disk must not hold close() for its full timeout
+    @Test
+    void closeGivesUpOnFailingWritesAndReportsThem() throws InterruptedException {
+        AccountJournal unopened = new AccountJournal(directory);
+        JournalWriter writer = new JournalWriter(unopened, 16, null);
+        writer.submit(new Transaction(1, Transaction.DEPOSIT, Transaction.SAVINGS, 100));
+        writer.submit(new Transaction(2, Transaction.DEPOSIT, Transaction.SAVINGS, 100));
+        while (writer.getLastError() == null) {
+            Thread.sleep(5);
+        }
+        long start = System.nanoTime();
+        boolean flushed = writer.close(5_000);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        assertFalse(flushed);
+        assertEquals(2, writer.getPending());
+        assertTrue(millis < 1_000, "close waited " + millis + " ms");
+    }
+}
@@ -0,0 +1,67 @@
+package sudoku;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PuzzlePoolTest {
+    @TempDir
+    File directory;
+
+    private static boolean isPlayable(int[][] puzzle) {
+        Sudoku sudoku = new Sudoku(puzzle);
+        return sudoku.isGridValid() && sudoku.countSolutions(2) == 1;
+    }
+
+    // Only the unique puzzle survives the load; the pool then tops up and rewrites the cache
+    // with puzzles alone
+    @Test
+    void cacheServesOnlyPlayablePuzzles() throws IOException, InterruptedException {
+        int[][] unique = new PuzzleGenerator(9).generate(4, PuzzleGenerator.targetClues(4)).getBoard();
+        Sudoku solved = new Sudoku(unique);
+        assertTrue(solved.solve());
+        int[][] duplicate = new int[4][4];
+        duplicate[0][0] = 1;
+        duplicate[0][1] = 1;
+        File cache = new File(directory, "puzzle_cache.txt");
+        Files.write(cache.toPath(), Arrays.asList(
+                "garbage",
+                PuzzleFormat.format(duplicate),
+                PuzzleFormat.format(new int[4][4]),
+                PuzzleFormat.format(unique) + " " + PuzzleFormat.format(solved.getBoard())));
+
+        PuzzlePool pool = new PuzzlePool(new int[]{4, 6}, 2, cache);
+        pool.start();
+        try {
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            List<String> lines = Files.readAllLines(cache.toPath());
+            // Rewritten once per refill round, so wait for the one with both pools full
+            while ((lines.size() < 4 || lines.contains("garbage")) && System.nanoTime() < deadline) {
+                Thread.sleep(20);
+                lines = Files.readAllLines(cache.toPath());
+            }
+            assertEquals(4, lines.size(), String.valueOf(lines));
+            assertTrue(lines.contains(PuzzleFormat.format(unique)), "the cached puzzle was dropped");
+            for (String line : lines) {
+                assertFalse(line.contains(" "), "solutions are no longer stored: " + line);
+                assertTrue(isPlayable(PuzzleFormat.parse(line)), line);
+            }
+            assertFalse(new File(directory, "puzzle_cache.txt.tmp").exists());
+
+            for (int i = 0; i < 2; i++) {
+                Sudoku sudoku = pool.take(4);
+                assertNotNull(sudoku);
+                assertTrue(isPlayable(sudoku.getBoard()));
+            }
+        } finally {
+            pool.stop();
+        }
+    }
+}
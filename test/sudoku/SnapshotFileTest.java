@@ -0,0 +1,83 @@
+package sudoku;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotFileTest {
+    @TempDir
+    File directory;
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private File newestSlot(SnapshotFile snapshot) {
+        return new File(directory, "state." + (snapshot.getGeneration() % 2 == 0 ? "a" : "b"));
+    }
+
+    @Test
+    void readsBackTheNewestWrite() throws IOException {
+        SnapshotFile snapshot = new SnapshotFile(directory, "state");
+        assertFalse(snapshot.exists());
+        assertNull(snapshot.read());
+        for (int i = 0; i < 5; i++) {
+            snapshot.write(bytes("balances " + i + "\n"));
+        }
+        assertEquals(4, snapshot.getGeneration());
+
+        SnapshotFile reopened = new SnapshotFile(directory, "state");
+        assertArrayEquals(bytes("balances 4\n"), reopened.read());
+        assertEquals(4, reopened.getGeneration());
+        // A write without a read first must still go past the newest generation
+        SnapshotFile writer = new SnapshotFile(directory, "state");
+        writer.write(bytes("balances 5\n"));
+        assertEquals(5, writer.getGeneration());
+        assertArrayEquals(bytes("balances 5\n"), new SnapshotFile(directory, "state").read());
+    }
+
+    @Test
+    void tornNewestSlotFallsBackOneGeneration() throws IOException {
+        SnapshotFile snapshot = new SnapshotFile(directory, "state");
+        for (int i = 0; i < 4; i++) {
+            snapshot.write(bytes("balances " + i + "\n"));
+        }
+        try (RandomAccessFile file = new RandomAccessFile(newestSlot(snapshot), "rw")) {
+            file.setLength(file.length() - 3);
+        }
+        SnapshotFile reopened = new SnapshotFile(directory, "state");
+        assertArrayEquals(bytes("balances 2\n"), reopened.read());
+        assertEquals(2, reopened.getGeneration());
+
+        // The next write replaces the torn slot, not the one recovered from
+        reopened.write(bytes("balances 3 again\n"));
+        assertArrayEquals(bytes("balances 3 again\n"), new SnapshotFile(directory, "state").read());
+    }
+
+    @Test
+    void corruptPayloadOrHeaderIsIgnored() throws IOException {
+        SnapshotFile snapshot = new SnapshotFile(directory, "state");
+        snapshot.write(bytes("first\n"));
+        snapshot.write(bytes("second\n"));
+        File newest = newestSlot(snapshot);
+        byte[] file = Files.readAllBytes(newest.toPath());
+        // Same length, one payload byte flipped: only the CRC can tell
+        file[file.length - 2] ^= 1;
+        Files.write(newest.toPath(), file);
+        assertArrayEquals(bytes("first\n"), new SnapshotFile(directory, "state").read());
+
+        Files.write(newest.toPath(), bytes("garbage"));
+        assertArrayEquals(bytes("first\n"), new SnapshotFile(directory, "state").read());
+
+        new SnapshotFile(directory, "state").delete();
+        assertFalse(snapshot.exists());
+        assertNull(new SnapshotFile(directory, "state").read());
+    }
+}
@@ -0,0 +1,88 @@
+package sudoku;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SolverServerTest {
+    private SolverServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        server = new SolverServer(0, 2, 5_000);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+    }
+
+    // Status code and body text
+    private String[] request(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.US_ASCII));
+            }
+        }
+        int status = connection.getResponseCode();
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        try (InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            in.transferTo(text);
+        }
+        return new String[]{String.valueOf(status), text.toString(StandardCharsets.US_ASCII).trim()};
+    }
+
+    @Test
+    void solvesCountsAndRejects() throws IOException {
+        int[][] puzzle = new PuzzleGenerator(24).generate(9, PuzzleGenerator.targetClues(9)).getBoard();
+        String[] solved = request("POST", "/solve", PuzzleFormat.format(puzzle));
+        assertEquals("200", solved[0]);
+        Sudoku solution = new Sudoku(PuzzleFormat.parse(solved[1]));
+        assertTrue(solution.isGridValid());
+        assertEquals(81, solution.getFilledCount());
+
+        assertEquals("unique", request("POST", "/count", PuzzleFormat.format(puzzle))[1]);
+        assertEquals("multiple", request("POST", "/count", PuzzleFormat.format(new int[9][9]))[1]);
+        assertEquals("400", request("POST", "/solve", "12345")[0]);
+        assertEquals("400", request("GET", "/generate?size=7", null)[0]);
+        assertEquals("405", request("GET", "/solve", null)[0]);
+    }
+
+    // The budget has to bound the whole generation, not just clue removal
+    @Test
+    void generateStaysWithinItsBudget() throws IOException {
+        long start = System.nanoTime();
+        String[] reply = request("GET", "/generate?size=25&budgetMillis=20", null);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(millis < 1_000, "took " + millis + " ms");
+        if ("200".equals(reply[0])) {
+            int[][] board = PuzzleFormat.parse(reply[1]);
+            assertEquals(1, new Sudoku(board).countSolutions(2));
+        } else {
+            assertEquals("504", reply[0], reply[1]);
+        }
+    }
+
+    @Test
+    void raisedStopFlagAbortsTheFill() {
+        PuzzleGenerator generator = new PuzzleGenerator(1);
+        generator.setStopFlag(new AtomicBoolean(true));
+        assertThrows(CancellationException.class, () -> generator.generate(25, PuzzleGenerator.targetClues(25)));
+    }
+}
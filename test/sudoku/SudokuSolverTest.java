@@ -0,0 +1,143 @@
+package sudoku;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SudokuSolverTest {
+    // One pool for the whole class; the split depth is low enough that small boards still fork
+    private static final ParallelSolver PARALLEL = new ParallelSolver(4, 2);
+    // BacktrackingSolver is the reference the faster engines are checked against
+    private static final List<Supplier<SudokuSolver>> ENGINES = Arrays.asList(
+            ConstraintSolver::new, DancingLinksSolver::new, () -> PARALLEL);
+
+    @AfterAll
+    static void shutdown() {
+        PARALLEL.shutdown();
+    }
+
+    private static List<int[][]> puzzles(int size, int count) {
+        PuzzleGenerator generator = new PuzzleGenerator(size);
+        List<int[][]> puzzles = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            puzzles.add(generator.generate(size, PuzzleGenerator.targetClues(size)).getBoard());
+        }
+        return puzzles;
+    }
+
+    private static Sudoku board(int[][] givens, SudokuSolver solver) {
+        Sudoku sudoku = new Sudoku(givens);
+        sudoku.setSolver(solver);
+        return sudoku;
+    }
+
+    @Test
+    void enginesFindTheReferenceSolution() {
+        for (int size : new int[]{4, 6, 9}) {
+            for (int[][] puzzle : puzzles(size, 20)) {
+                Sudoku reference = board(puzzle, new BacktrackingSolver());
+                assertTrue(reference.solve());
+                for (Supplier<SudokuSolver> engine : ENGINES) {
+                    Sudoku sudoku = board(puzzle, engine.get());
+                    assertTrue(sudoku.solve(), sudoku.getSolver().getClass().getSimpleName());
+                    // The puzzles are unique, so every engine must land on the same grid
+                    assertArrayEquals(reference.getBoard(), sudoku.getBoard(), sudoku.getSolver().getClass().getSimpleName());
+                    assertTrue(sudoku.isGridValid());
+                    assertEquals(size * size, sudoku.getFilledCount());
+                }
+            }
+        }
+    }
+
+    @Test
+    void enginesAgreeOnSolutionCounts() {
+        for (int size : new int[]{4, 6, 9}) {
+            for (int[][] puzzle : puzzles(size, 10)) {
+                // Dropping givens makes most of these ambiguous
+                int[][] loose = new int[size][];
+                for (int row = 0; row < size; row++) {
+                    loose[row] = puzzle[row].clone();
+                }
+                for (int row = 0; row < size; row += 2) {
+                    Arrays.fill(loose[row], 0);
+                }
+                for (int[][] board : Arrays.asList(puzzle, loose)) {
+                    int expected = board(board, new BacktrackingSolver()).countSolutions(5);
+                    for (Supplier<SudokuSolver> engine : ENGINES) {
+                        Sudoku sudoku = board(board, engine.get());
+                        int[][] before = sudoku.getBoard();
+                        assertEquals(expected, sudoku.countSolutions(5), sudoku.getSolver().getClass().getSimpleName());
+                        assertArrayEquals(before, sudoku.getBoard(), "countSolutions must leave the board unchanged");
+                    }
+                }
+            }
+        }
+    }
+
+    // Too slow for the reference, so the bigger sizes only check the engines against each other
+    @Test
+    void enginesAgreeOnLargeBoards() {
+        for (int size : new int[]{16, 25}) {
+            for (int[][] puzzle : puzzles(size, 2)) {
+                Sudoku expected = board(puzzle, new ConstraintSolver());
+                assertTrue(expected.solve());
+                assertTrue(expected.isGridValid());
+                for (Supplier<SudokuSolver> engine : ENGINES) {
+                    Sudoku sudoku = board(puzzle, engine.get());
+                    assertTrue(sudoku.solve(), sudoku.getSolver().getClass().getSimpleName());
+                    assertArrayEquals(expected.getBoard(), sudoku.getBoard(), sudoku.getSolver().getClass().getSimpleName());
+                    assertEquals(1, board(puzzle, engine.get()).countSolutions(2));
+                }
+            }
+        }
+    }
+
+    @Test
+    void enginesReportNoSolutionAndLeaveTheBoard() {
+        // Consistent givens, but the top-left cell has no value left
+        int[][] puzzle = new int[9][9];
+        puzzle[0][1] = 1;
+        puzzle[0][2] = 2;
+        puzzle[1][0] = 3;
+        puzzle[2][0] = 4;
+        puzzle[1][1] = 5;
+        puzzle[0][5] = 6;
+        puzzle[0][6] = 7;
+        puzzle[5][0] = 8;
+        puzzle[6][0] = 9;
+        for (Supplier<SudokuSolver> engine : ENGINES) {
+            Sudoku sudoku = board(puzzle, engine.get());
+            assertTrue(sudoku.isGridValid());
+            assertFalse(sudoku.solve(), sudoku.getSolver().getClass().getSimpleName());
+            assertArrayEquals(puzzle, sudoku.getBoard());
+            assertEquals(0, sudoku.countSolutions(2));
+        }
+    }
+
+    // A raised stop flag has to reach the leaf searches, not just the split
+    @Test
+    void raisedStopFlagCancelsTheSearch() {
+        // Counting every solution of an empty board would never finish
+        int[][] empty = new int[9][9];
+        for (Supplier<SudokuSolver> engine : ENGINES) {
+            SudokuSolver solver = engine.get();
+            AtomicBoolean stop = new AtomicBoolean(true);
+            solver.setStopFlag(stop);
+            try {
+                Sudoku sudoku = board(empty, solver);
+                assertThrows(CancellationException.class, () -> sudoku.countSolutions(Integer.MAX_VALUE),
+                        solver.getClass().getSimpleName());
+            } finally {
+                solver.setStopFlag(null);
+            }
+        }
+    }
+}
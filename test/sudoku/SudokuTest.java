@@ -0,0 +1,99 @@
+package sudoku;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SudokuTest {
+    // Recounts the whole board the way the old validation loop did
+    private static void assertCountsMatchRescan(Sudoku sudoku) {
+        int size = sudoku.getSize();
+        int boxRows = sudoku.getBoxRows();
+        int boxCols = sudoku.getBoxCols();
+        int[][] counts = new int[3 * size][size + 1];
+        int filled = 0;
+        int outOfRange = 0;
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int value = sudoku.getCell(row, col);
+                if (value == 0) {
+                    continue;
+                }
+                filled++;
+                if (value > size) {
+                    outOfRange++;
+                    continue;
+                }
+                counts[row][value]++;
+                counts[size + col][value]++;
+                counts[2 * size + (row / boxRows) * (size / boxCols) + col / boxCols][value]++;
+            }
+        }
+        int duplicated = 0;
+        for (int[] unit : counts) {
+            for (int count : unit) {
+                if (count > 1) {
+                    duplicated++;
+                }
+            }
+        }
+        assertEquals(filled, sudoku.getFilledCount());
+        assertEquals(duplicated + outOfRange, sudoku.getConflictCount());
+        assertEquals(duplicated + outOfRange == 0, sudoku.isGridValid());
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                int value = sudoku.getCell(row, col);
+                int box = 2 * size + (row / boxRows) * (size / boxCols) + col / boxCols;
+                boolean conflict = value > size || value != 0
+                        && (counts[row][value] > 1 || counts[size + col][value] > 1 || counts[box][value] > 1);
+                assertEquals(conflict, sudoku.isConflict(row, col), "cell " + row + "," + col);
+                for (int num = 1; num <= size; num++) {
+                    boolean valid = counts[row][num] == 0 && counts[size + col][num] == 0 && counts[box][num] == 0;
+                    assertEquals(valid, sudoku.isValid(row, col, num));
+                }
+            }
+        }
+    }
+
+    @Test
+    void incrementalCountsMatchFullRescan() {
+        Random random = new Random(8);
+        for (int size : new int[]{4, 6, 9, 16}) {
+            Sudoku sudoku = new Sudoku(new PuzzleGenerator(size).generate(size, PuzzleGenerator.targetClues(size)).getBoard());
+            assertCountsMatchRescan(sudoku);
+            for (int edit = 0; edit < 500; edit++) {
+                // Mostly in-range values and clears, with the odd value the grid cannot hold
+                int roll = random.nextInt(20);
+                int value = roll == 0 ? size + 1 + random.nextInt(200) : roll < 5 ? 0 : 1 + random.nextInt(size);
+                sudoku.setCell(random.nextInt(size * size), value);
+                if (edit % 25 == 0) {
+                    assertCountsMatchRescan(sudoku);
+                }
+            }
+            assertCountsMatchRescan(sudoku);
+        }
+    }
+
+    @Test
+    void resetAndRestoreBringBackTheCounts() {
+        int[][] givens = new PuzzleGenerator(3).generate(9, PuzzleGenerator.targetClues(9)).getBoard();
+        Sudoku sudoku = new Sudoku(givens);
+        byte[] state = new byte[sudoku.getCellCount()];
+        sudoku.saveState(state, 0);
+        sudoku.setBoard(new int[9][9]);
+        sudoku.setCell(0, 5);
+        sudoku.setCell(1, 5);
+        assertCountsMatchRescan(sudoku);
+
+        sudoku.resetToFixedValues();
+        assertArrayEquals(givens, sudoku.getBoard());
+        assertCountsMatchRescan(sudoku);
+
+        sudoku.setCell(80, 200);
+        sudoku.restoreState(state, 0);
+        assertArrayEquals(givens, sudoku.getBoard());
+        assertCountsMatchRescan(sudoku);
+    }
+}
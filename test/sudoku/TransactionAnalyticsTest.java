@@ -0,0 +1,116 @@
+package sudoku;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionAnalyticsTest {
+    private static final ZoneId ZONE = ZoneOffset.UTC;
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final long THRESHOLD = 5_000;
+
+    private static long time(int year, int month, int day) {
+        return LocalDate.of(year, month, day).atStartOfDay(ZONE).toInstant().toEpochMilli();
+    }
+
+    private static TransactionLedger randomHistory(int entries) {
+        Random random = new Random(25);
+        TransactionLedger ledger = new TransactionLedger();
+        long start = time(2020, 1, 1);
+        long step = 3 * 365 * DAY / entries;
+        ledger.append(start, Transaction.INIT, Transaction.SAVINGS, 500_000);
+        ledger.append(start, Transaction.INIT, Transaction.SPENDINGS, 20_000);
+        for (int i = 2; i < entries; i++) {
+            // An occasional reset, and the odd entry from a clock set back a week
+            int roll = random.nextInt(20_000);
+            char op = roll == 0 ? Transaction.RESET : "DWWT".charAt(random.nextInt(4));
+            long time = start + i * step - (roll == 1 ? 7 * DAY : 0);
+            ledger.append(time, op, random.nextInt(2), 1 + random.nextInt(10_000));
+        }
+        return ledger;
+    }
+
+    // Chunked, incremental and one-pass statements must be the same, and end on the real balances
+    @Test
+    void parallelAndIncrementalMatchOneSequentialScan() {
+        int entries = TransactionAnalytics.PARALLEL_THRESHOLD + 30_000;
+        TransactionLedger ledger = randomHistory(entries);
+        String expected = TransactionAnalytics.compute(ledger, THRESHOLD, ZONE, Integer.MAX_VALUE).getStatements().toString();
+
+        assertEquals(expected, TransactionAnalytics.compute(ledger, THRESHOLD, ZONE).getStatements().toString());
+        // Small chunks split most months across several of them
+        assertEquals(expected, TransactionAnalytics.compute(ledger, THRESHOLD, ZONE, 1_000).getStatements().toString());
+
+        TransactionLedger half = new TransactionLedger();
+        for (int i = 0; i < entries / 2; i++) {
+            half.append(ledger.get(i));
+        }
+        TransactionAnalytics incremental = TransactionAnalytics.compute(half, THRESHOLD, ZONE);
+        for (int i = entries / 2; i < entries; i++) {
+            incremental.add(ledger.get(i));
+        }
+        assertEquals(expected, incremental.getStatements().toString());
+        assertEquals(entries, incremental.getEntryCount());
+
+        long[] balances = new long[Transaction.ACCOUNT_NAMES.length];
+        ledger.applyRange(0, entries, balances);
+        List<TransactionAnalytics.Statement> statements = incremental.getStatements();
+        TransactionAnalytics.Statement last = statements.get(statements.size() - 1);
+        assertEquals(balances[Transaction.SAVINGS], last.getClosing(Transaction.SAVINGS));
+        assertEquals(balances[Transaction.SPENDINGS], last.getClosing(Transaction.SPENDINGS));
+    }
+
+    @Test
+    void statementsFollowTheMonths() {
+        TransactionLedger ledger = new TransactionLedger();
+        ledger.append(time(2024, 1, 5), Transaction.INIT, Transaction.SAVINGS, 10_000);
+        ledger.append(time(2024, 1, 5), Transaction.INIT, Transaction.SPENDINGS, 6_000);
+        ledger.append(time(2024, 1, 9), Transaction.WITHDRAW, Transaction.SPENDINGS, 2_000);
+        ledger.append(time(2024, 1, 20), Transaction.TRANSFER, Transaction.SAVINGS, 3_000);
+        ledger.append(time(2024, 3, 2), Transaction.DEPOSIT, Transaction.SAVINGS, 500);
+        // Clock set back into January: counts in March, which is open
+        ledger.append(time(2024, 1, 25), Transaction.WITHDRAW, Transaction.SPENDINGS, 6_000);
+        TransactionAnalytics analytics = TransactionAnalytics.compute(ledger, THRESHOLD, ZONE);
+
+        List<TransactionAnalytics.Statement> statements = analytics.getStatements();
+        assertEquals(2, statements.size());
+        TransactionAnalytics.Statement january = statements.get(0);
+        assertEquals(YearMonth.of(2024, 1), january.getMonth());
+        assertEquals(4, january.getEntries());
+        assertEquals(7_000, january.getClosing(Transaction.SAVINGS));
+        assertEquals(7_000, january.getClosing(Transaction.SPENDINGS));
+        // The month opened before the accounts were set up
+        assertEquals(0, january.getMinimum(Transaction.SPENDINGS));
+        assertEquals(3_000, january.getTransfersOut(Transaction.SAVINGS));
+        assertEquals(3_000, january.getTransfersIn(Transaction.SPENDINGS));
+        assertEquals(1, january.getLowBalanceIncidents(Transaction.SPENDINGS));
+
+        TransactionAnalytics.Statement march = statements.get(1);
+        assertEquals(YearMonth.of(2024, 3), march.getMonth());
+        assertEquals(2, march.getEntries());
+        assertEquals(7_000, march.getOpening(Transaction.SAVINGS));
+        assertEquals(500, march.getChange(Transaction.SAVINGS));
+        assertEquals(1_000, march.getClosing(Transaction.SPENDINGS));
+        assertEquals(1_000, march.getMinimum(Transaction.SPENDINGS));
+        assertEquals(6_000, march.getWithdrawals(Transaction.SPENDINGS));
+        assertEquals(2, analytics.getLowBalanceIncidents(Transaction.SPENDINGS));
+        assertEquals(0, analytics.getLowBalanceIncidents(Transaction.SAVINGS));
+
+        // Adding to the open month changes its row, a new month closes it
+        analytics.add(new Transaction(time(2024, 3, 30), Transaction.DEPOSIT, Transaction.SPENDINGS, 100));
+        assertEquals(2, analytics.getStatements().size());
+        analytics.add(new Transaction(time(2024, 4, 1), Transaction.RESET, Transaction.SAVINGS, 0));
+        statements = analytics.getStatements();
+        assertEquals(3, statements.size());
+        assertEquals(1_100, statements.get(1).getClosing(Transaction.SPENDINGS));
+        assertEquals(0, statements.get(2).getClosing(Transaction.SAVINGS));
+        assertEquals(8, analytics.getEntryCount());
+    }
+}
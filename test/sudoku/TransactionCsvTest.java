@@ -0,0 +1,124 @@
+package sudoku;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionCsvTest {
+    @TempDir
+    File directory;
+
+    private static BufferedReader csv(String... rows) {
+        return new BufferedReader(new StringReader(TransactionCsv.HEADER + "\n" + String.join("\n", rows) + "\n"));
+    }
+
+    private static AccountEngine balances(long savings, long spendings) {
+        AccountEngine balances = new AccountEngine(Transaction.ACCOUNT_NAMES.length);
+        balances.setBalance(Transaction.SAVINGS, savings);
+        balances.setBalance(Transaction.SPENDINGS, spendings);
+        return balances;
+    }
+
+    @Test
+    void acceptedRowsArriveInBatchesOfTheRequestedSize() throws IOException {
+        List<String> rows = new ArrayList<>();
+        rows.add("1000,init,Savings,100.00");
+        for (int i = 0; i < 24; i++) {
+            rows.add((1001 + i) + ",deposit,Spendings,1.25");
+        }
+        List<Integer> sizes = new ArrayList<>();
+        AccountEngine balances = balances(0, 0);
+        TransactionCsv.ImportResult result = TransactionCsv.importCsv(csv(rows.toArray(new String[0])), balances, 10,
+                batch -> sizes.add(batch.size()));
+
+        assertEquals(List.of(10, 10, 5), sizes);
+        assertEquals(25, result.getImported());
+        assertEquals(0, result.getRejected());
+        assertEquals(10_000, balances.getBalance(Transaction.SAVINGS));
+        assertEquals(3_000, balances.getBalance(Transaction.SPENDINGS));
+    }
+
+    @Test
+    void badRowsAreSkippedAndReported() throws IOException {
+        List<Transaction> written = new ArrayList<>();
+        AccountEngine balances = balances(5_000, 0);
+        TransactionCsv.ImportResult result = TransactionCsv.importCsv(csv(
+                "1,withdraw,Savings,10.00",
+                "2,withdraw,Savings,100.00",
+                "3,deposit,Checking,1.00",
+                "4,deposit,Savings,-1",
+                "5,refund,Savings,1.00",
+                "6,transfer,Savings,40.00",
+                "7,deposit,Spendings," + 1e17,
+                "not a date,deposit,Savings,1.00",
+                "8,deposit,Savings",
+                "9,reset,,"), balances, 100, written::addAll);
+
+        assertEquals(3, result.getImported());
+        assertEquals(7, result.getRejected());
+        assertEquals(7, result.getErrors().size());
+        assertTrue(result.getErrors().get(0).startsWith("line 3: insufficient funds"), result.getErrors().get(0));
+        assertEquals(Transaction.RESET, written.get(2).op);
+        assertEquals(0, balances.getBalance(Transaction.SAVINGS));
+        assertEquals(0, balances.getBalance(Transaction.SPENDINGS));
+    }
+
+    // Balances must end up holding what the sink took, not what was read
+    @Test
+    void failingSinkLeavesBalancesAtTheLastWrittenBatch() {
+        List<String> rows = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            rows.add(i + ",deposit,Savings,1.00");
+        }
+        AccountEngine balances = balances(0, 0);
+        int[] calls = new int[1];
+        assertThrows(IOException.class, () -> TransactionCsv.importCsv(csv(rows.toArray(new String[0])), balances, 10, batch -> {
+            if (++calls[0] == 2) {
+                throw new IOException("disk full");
+            }
+        }));
+        assertEquals(1_000, balances.getBalance(Transaction.SAVINGS));
+    }
+
+    @Test
+    void exportedJournalImportsToTheSameRecords() throws IOException {
+        AccountJournal journal = new AccountJournal(directory);
+        journal.open();
+        List<Transaction> records = List.of(
+                new Transaction(1_700_000_000_000L, Transaction.INIT, Transaction.SAVINGS, 50_000),
+                new Transaction(1_700_000_001_000L, Transaction.INIT, Transaction.SPENDINGS, 1_005),
+                new Transaction(1_700_000_002_000L, Transaction.TRANSFER, Transaction.SAVINGS, 12_345),
+                new Transaction(1_700_000_003_000L, Transaction.WITHDRAW, Transaction.SPENDINGS, 7),
+                new Transaction(1_700_000_004_000L, Transaction.RESET, Transaction.SAVINGS, 0),
+                new Transaction(1_700_000_005_000L, Transaction.DEPOSIT, Transaction.SPENDINGS, 99));
+        StringWriter out = new StringWriter();
+        try {
+            journal.appendAll(records);
+            assertEquals(records.size(), TransactionCsv.exportCsv(journal, journal.getRecordCount(), out));
+        } finally {
+            journal.close();
+        }
+
+        List<Transaction> imported = new ArrayList<>();
+        AccountEngine balances = balances(0, 0);
+        TransactionCsv.ImportResult result = TransactionCsv.importCsv(new BufferedReader(new StringReader(out.toString())),
+                balances, 4, imported::addAll);
+        assertEquals(0, result.getRejected(), String.valueOf(result.getErrors()));
+        assertEquals(records.size(), imported.size());
+        for (int i = 0; i < records.size(); i++) {
+            assertEquals(records.get(i).describe(), imported.get(i).describe());
+            assertEquals(records.get(i).timestamp, imported.get(i).timestamp);
+        }
+        assertEquals(0, balances.getBalance(Transaction.SAVINGS));
+        assertEquals(99, balances.getBalance(Transaction.SPENDINGS));
+    }
+}
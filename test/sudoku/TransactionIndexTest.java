@@ -0,0 +1,86 @@
+package sudoku;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionIndexTest {
+    private static final long DAY = 24L * 60 * 60 * 1000;
+    private static final char[] OPS = {Transaction.INIT, Transaction.DEPOSIT, Transaction.WITHDRAW,
+            Transaction.TRANSFER, Transaction.RESET};
+
+    // What query() has to return, found by scanning every entry. A reset touches both accounts.
+    private static int[] scan(List<Transaction> entries, int account, char op, long fromTime, long toTime,
+                              long minCents, long maxCents) {
+        List<Integer> matches = new ArrayList<>();
+        for (int i = 0; i < entries.size(); i++) {
+            Transaction t = entries.get(i);
+            if ((account == TransactionLedger.ANY_ACCOUNT || t.account == account || t.op == Transaction.RESET)
+                    && (op == TransactionLedger.ANY_OP || t.op == op)
+                    && t.timestamp >= fromTime && t.timestamp < toTime
+                    && t.cents >= minCents && t.cents <= maxCents) {
+                matches.add(i);
+            }
+        }
+        matches.sort(Comparator.comparingLong((Integer i) -> entries.get(i).timestamp).thenComparingInt(i -> i));
+        return matches.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    @Test
+    void queriesMatchAFullScan() {
+        Random random = new Random(18);
+        List<Transaction> entries = new ArrayList<>();
+        TransactionIndex index = new TransactionIndex();
+        long start = 1_600_000_000_000L;
+        for (int i = 0; i < 20_000; i++) {
+            // Mostly in time order, with the odd entry from a clock set back
+            long time = start + i * (DAY / 50) - (random.nextInt(200) == 0 ? random.nextInt(30) * DAY : 0);
+            char op = random.nextInt(500) == 0 ? Transaction.RESET : OPS[1 + random.nextInt(3)];
+            // The banking window journals a reset under Savings
+            int account = op == Transaction.RESET ? Transaction.SAVINGS : random.nextInt(2);
+            Transaction t = new Transaction(time, op, account, random.nextInt(50_000));
+            entries.add(t);
+            index.add(t);
+        }
+        assertEquals(entries.size(), index.size());
+
+        long end = start + 400 * DAY;
+        for (int q = 0; q < 300; q++) {
+            int account = random.nextInt(3) - 1;
+            char op = random.nextInt(4) == 0 ? TransactionLedger.ANY_OP : OPS[random.nextInt(OPS.length)];
+            long fromTime = random.nextBoolean() ? Long.MIN_VALUE : start + (long) (random.nextDouble() * 400 * DAY);
+            long toTime = random.nextBoolean() ? Long.MAX_VALUE : fromTime == Long.MIN_VALUE
+                    ? start + (long) (random.nextDouble() * 400 * DAY) : fromTime + random.nextInt(40) * DAY;
+            long minCents = random.nextBoolean() ? Long.MIN_VALUE : random.nextInt(50_000);
+            long maxCents = random.nextBoolean() ? Long.MAX_VALUE : minCents == Long.MIN_VALUE
+                    ? random.nextInt(50_000) : minCents + random.nextInt(5_000);
+
+            TransactionIndex.Query query = new TransactionIndex.Query().account(account).op(op)
+                    .between(fromTime, toTime).amountBetween(minCents, maxCents);
+            assertArrayEquals(scan(entries, account, op, fromTime, toTime, minCents, maxCents), index.query(query),
+                    "account " + account + ", op " + (int) op + ", time " + fromTime + ".." + toTime
+                            + ", cents " + minCents + ".." + maxCents);
+        }
+        assertEquals(0, index.query(new TransactionIndex.Query().between(end + DAY, end + 2 * DAY)).length);
+        assertEquals(0, index.query(new TransactionIndex.Query().op('?')).length);
+    }
+
+    @Test
+    void resetShowsUpForBothAccounts() {
+        TransactionIndex index = new TransactionIndex();
+        index.add(new Transaction(1, Transaction.DEPOSIT, Transaction.SPENDINGS, 100));
+        index.add(new Transaction(2, Transaction.RESET, Transaction.SAVINGS, 0));
+        index.add(new Transaction(3, Transaction.DEPOSIT, Transaction.SAVINGS, 100));
+        assertArrayEquals(new int[]{0, 1}, index.query(new TransactionIndex.Query().account(Transaction.SPENDINGS)));
+        assertArrayEquals(new int[]{1, 2}, index.query(new TransactionIndex.Query().account(Transaction.SAVINGS)));
+        assertArrayEquals(new int[]{1}, index.query(new TransactionIndex.Query().account(Transaction.SPENDINGS).op(Transaction.RESET)));
+        // Once, not once per account
+        assertArrayEquals(new int[]{1}, index.query(new TransactionIndex.Query().op(Transaction.RESET)));
+        assertArrayEquals(new int[]{0, 1, 2}, index.query(new TransactionIndex.Query()));
+    }
+}